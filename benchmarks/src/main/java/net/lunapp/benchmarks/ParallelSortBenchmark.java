@@ -0,0 +1,52 @@
+package net.lunapp.benchmarks;
+
+import net.lunapp.sort.SortAlgorithm;
+import net.lunapp.sort.SortInput;
+import net.lunapp.sort.StepRecorder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wie die parallelen Verfahren mit der Anzahl der Worker skalieren; workers=1 entspricht in etwa
+ * dem sequentiellen Gegenstück plus Fork/Join-Overhead. Die Messung enthält das Kopieren der Eingabe
+ * ({@link CopyBaseline}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParallelSortBenchmark extends SortData {
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+
+    @Param({"PARALLEL_MERGE", "PARALLEL_QUICK", "PARALLEL_RADIX"})
+    public SortAlgorithm algorithm;
+
+    @Override
+    protected int[] generate() {
+        return SortInput.RANDOM.generate(size, 42);
+    }
+
+    @Benchmark
+    public int[] sort() {
+        int[] values = fresh();
+        algorithm.sort(values, StepRecorder.NONE, workers);
+        return values;
+    }
+}
@@ -0,0 +1,50 @@
+package net.lunapp.benchmarks;
+
+import net.lunapp.sort.SortAlgorithm;
+import net.lunapp.sort.SortInput;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Die O(n²)-Verfahren nur bis 10^4 Elemente; darüber dauert ein Durchlauf Sekunden bis Minuten.
+ * Arrays.sort läuft als Referenz mit. Die Messung enthält das Kopieren der Eingabe ({@link CopyBaseline}).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuadraticSortBenchmark extends SortData {
+
+    @Param({"10", "100", "1000", "10000"})
+    public int size;
+
+    @Param({"RANDOM", "SORTED", "REVERSED", "FEW_UNIQUE"})
+    public SortInput input;
+
+    @Param({"BUBBLE", "INSERTION", "SELECTION", "COCKTAIL", "PANCAKE", "JDK_SORT"})
+    public SortAlgorithm algorithm;
+
+    @Override
+    protected int[] generate() {
+        return input.generate(size, 42);
+    }
+
+    @Benchmark
+    public int[] sort() {
+        int[] values = fresh();
+        algorithm.sort(values);
+        return values;
+    }
+}
@@ -0,0 +1,39 @@
+package net.lunapp.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Gemeinsame Eingabe der Sortier-Benchmarks: einmal pro Trial erzeugt und vor jedem Sortieren frisch kopiert.
+ *
+ * Kopiert wird in der Benchmark-Methode selbst statt in einem Setup pro Aufruf, denn bei kleinen Größen
+ * würde JMH mit Level.Invocation vor allem seine eigenen Zeitstempel messen. Was das Kopieren allein
+ * kostet, zeigt {@link CopyBaseline}.
+ */
+@State(Scope.Thread)
+public abstract class SortData {
+
+    private int[] original;
+    private int[] values;
+
+    /**
+     * @return Die Eingabe passend zu den Parametern der Unterklasse.
+     */
+    protected abstract int[] generate();
+
+    @Setup(Level.Trial)
+    public void prepare() {
+        original = generate();
+        values = new int[original.length];
+    }
+
+    /**
+     * @return Die unsortierte Eingabe, immer im selben Array.
+     */
+    protected int[] fresh() {
+        System.arraycopy(original, 0, values, 0, original.length);
+        return values;
+    }
+}
@@ -0,0 +1,60 @@
+package net.lunapp.benchmarks;
+
+import net.lunapp.sort.SortAlgorithm;
+import net.lunapp.sort.SortInput;
+import net.lunapp.sort.SortTrace;
+import net.lunapp.sort.StepRecorder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Was das Aufzeichnen der Schritte kostet: derselbe Algorithmus ohne Recorder und mit {@link SortTrace}.
+ * Beide Messungen enthalten dasselbe Kopieren der Eingabe, die Differenz ist also allein die Aufzeichnung.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TraceBenchmark extends SortData {
+
+    // So viele Frames wie eine 5-Sekunden-Animation in /sort
+    private static final int FRAMES = 125;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    @Param({"INSERTION", "QUICK", "HEAP", "MERGE"})
+    public SortAlgorithm algorithm;
+
+    @Override
+    protected int[] generate() {
+        return SortInput.RANDOM.generate(size, 42);
+    }
+
+    @Benchmark
+    public int[] withoutRecorder() {
+        int[] values = fresh();
+        algorithm.sort(values, StepRecorder.NONE);
+        return values;
+    }
+
+    @Benchmark
+    public SortTrace withTrace() {
+        int[] values = fresh();
+        SortTrace trace = new SortTrace(values, FRAMES);
+        algorithm.sort(values, trace);
+        return trace;
+    }
+}
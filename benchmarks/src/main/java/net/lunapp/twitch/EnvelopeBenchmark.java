@@ -0,0 +1,101 @@
+package net.lunapp.twitch;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Kodierkosten eines Broadcasts bis zum fertigen WebSocket-Frame: der frühere Weg (Umschlag als
+ * zusätzliches JSONObject), der JSON-Text-Umschlag und das binäre CBOR-Format.
+ *
+ * Liegt im Paket des Servers, weil Encoder und Frames paketintern sind. Die Bytes pro Nachricht
+ * (auch mit permessage-deflate) werden einmal beim Setup ausgegeben.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EnvelopeBenchmark {
+
+    @Param({"chat", "sort-15", "sort-1000", "metrics"})
+    public String event;
+
+    private JSONObject payload;
+
+    @Setup
+    public void setup() {
+        switch (event) {
+            case "chat":
+                payload = new JSONObject().put("message",
+                        "Mitsuki sagt Hallo an alle im Chat! Danke für den Raid, ihr seid großartig ✨ (๑˃ᴗ˂)ﻭ");
+                break;
+            case "sort-15":
+                payload = sortFrame(15);
+                break;
+            case "sort-1000":
+                payload = sortFrame(1000);
+                break;
+            default:
+                payload = new JSONObject()
+                        .put("messagesPerSecond", 42.5)
+                        .put("uniqueChatters", 1234)
+                        .put("hitRate", 0.173)
+                        .put("clients", 87);
+        }
+        System.out.printf("%n%s: legacy %s, json %s, cbor %s (Bytes, mit deflate)%n", event,
+                sizes(legacy()), sizes(json()), sizes(cbor()));
+    }
+
+    /**
+     * Der frühere Weg: Umschlag als eigenes JSONObject, danach toString() und getBytes().
+     */
+    @Benchmark
+    public ByteBuffer legacy() {
+        JSONObject jsonMessage = new JSONObject();
+        jsonMessage.put("type", event);
+        jsonMessage.put("payload", payload);
+        return WebSocketFrames.encode(WebSocketFrames.OPCODE_TEXT, jsonMessage.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public ByteBuffer json() {
+        return WebSocketFrames.encode(WebSocketFrames.OPCODE_TEXT, SocketServer.textEnvelope(event, 4711, payload));
+    }
+
+    @Benchmark
+    public ByteBuffer cbor() {
+        return CborEncoder.encodeFrame(event, 4711, payload);
+    }
+
+    private static String sizes(ByteBuffer frame) {
+        ByteBuffer payload = frame.duplicate().position(WebSocketFrames.headerLengthOf(frame)).slice();
+        byte[] deflated = PerMessageDeflate.deflate(payload);
+        return payload.remaining() + "/" + (deflated == null ? "-" : String.valueOf(deflated.length));
+    }
+
+    private static JSONObject sortFrame(int size) {
+        Random random = new Random(42);
+        JSONArray values = new JSONArray();
+        for (int i = 0; i < size; i++) {
+            values.put(random.nextInt(size) + 1);
+        }
+        return new JSONObject().put("step", 1337).put("values", values);
+    }
+}
@@ -0,0 +1,266 @@
+package net.lunapp;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Zulassungskontrolle für KI-Anfragen.
+ *
+ * Alle Anfragen (Slash-Commands, Listener, Twitch) laufen über einen gemeinsamen, begrenzten Pool.
+ * Pro Nutzer und pro Channel gibt es Kontingente in einem gleitenden Fenster. Die Warteschlange
+ * ist nach Priorität sortiert (INTERACTIVE vor LISTENER vor TWITCH); zusätzlich ist ein Teil der
+ * Worker nur für interaktive Anfragen reserviert, damit diese auch bei Chat-Fluten schnell bleiben.
+ * Übersteigt die Wartezeit eine Schwelle, werden niedrig priorisierte Anfragen sofort mit einer
+ * vorgefertigten Antwort abgewiesen. Scheitert eine Anfrage im Worker, bekommt sie ebenfalls eine
+ * vorgefertigte Antwort, damit niemand auf eine Antwort wartet, die nie kommt.
+ */
+public class AdmissionController {
+
+    /**
+     * Prioritätsklassen; kleinere Ordinalzahl = höhere Priorität.
+     */
+    public enum Priority {
+        INTERACTIVE,
+        LISTENER,
+        TWITCH
+    }
+
+    private static final long WINDOW_MILLIS = 60_000;
+
+    private final int userQuota;
+    private final int channelQuota;
+    private final int queueCapacity;
+    private final long shedLatencyMillis;
+    private final String busyResponse;
+    private final String quotaResponse;
+    private final String errorResponse;
+
+    private final PriorityBlockingQueue<Task> queue = new PriorityBlockingQueue<>();
+    // Nur interaktive Anfragen; wird von den reservierten Workern gelesen
+    private final BlockingQueue<Task> interactiveQueue = new LinkedBlockingQueue<>();
+    // Noch von keinem Worker übernommene Anfragen. Interaktive Anfragen stehen in beiden Queues,
+    // deshalb zählt nicht die Größe der Queues, sondern dieser Zähler
+    private final AtomicInteger pending = new AtomicInteger();
+    // Beide Kontingente werden unter einem Lock geprüft und verbucht
+    private final Object quotaLock = new Object();
+    private final Map<String, ArrayDeque<Long>> userWindows = new HashMap<>();
+    private final Map<String, ArrayDeque<Long>> channelWindows = new HashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    // Geglättete Wartezeit in der Warteschlange (Millisekunden), als Bits eines double
+    private final AtomicLong queueLatency = new AtomicLong(Double.doubleToLongBits(0));
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong rejectedByQuota = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    /**
+     * Liest die Einstellungen aus der config.properties:
+     * aiWorkerThreads, aiInteractiveThreads, aiQueueCapacity, aiUserRequestsPerMinute,
+     * aiChannelRequestsPerMinute, aiShedLatencyMillis, aiBusyResponse, aiQuotaResponse und aiErrorResponse.
+     *
+     * @param properties Die geladene Konfiguration.
+     */
+    public AdmissionController(Properties properties) {
+        int workers = Integer.parseInt(properties.getProperty("aiWorkerThreads", "4"));
+        int interactiveWorkers = Integer.parseInt(properties.getProperty("aiInteractiveThreads", "1"));
+        this.queueCapacity = Integer.parseInt(properties.getProperty("aiQueueCapacity", "64"));
+        this.userQuota = Integer.parseInt(properties.getProperty("aiUserRequestsPerMinute", "6"));
+        this.channelQuota = Integer.parseInt(properties.getProperty("aiChannelRequestsPerMinute", "20"));
+        this.shedLatencyMillis = Long.parseLong(properties.getProperty("aiShedLatencyMillis", "5000"));
+        this.busyResponse = properties.getProperty("aiBusyResponse",
+                "Ich bin gerade ziemlich beschäftigt, frag mich gleich nochmal!");
+        this.quotaResponse = properties.getProperty("aiQuotaResponse",
+                "Langsam, langsam! Ich brauche eine kurze Pause, bevor ich wieder antworte.");
+        this.errorResponse = properties.getProperty("aiErrorResponse",
+                "Da ist etwas schiefgelaufen, bitte versuch es nochmal.");
+
+        for (int i = 0; i < workers; i++) {
+            startWorker("AI-Worker-" + (i + 1), queue);
+        }
+        for (int i = 0; i < interactiveWorkers; i++) {
+            startWorker("AI-Interactive-" + (i + 1), interactiveQueue);
+        }
+    }
+
+    private void startWorker(String name, BlockingQueue<Task> source) {
+        Thread thread = new Thread(() -> {
+            while (true) {
+                try {
+                    run(source.take());
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Reicht eine KI-Anfrage ein.
+     *
+     * @param priority  Die Prioritätsklasse.
+     * @param userId    Der anfragende Nutzer (für das Nutzerkontingent).
+     * @param channelId Der Channel (für das Channelkontingent).
+     * @param work      Die eigentliche Arbeit; läuft in einem Worker-Thread.
+     * @param shedReply Erhält die vorgefertigte Antwort, falls die Anfrage abgewiesen wird oder scheitert.
+     */
+    public void submit(Priority priority, String userId, String channelId, Runnable work, Consumer<String> shedReply) {
+        long now = System.currentTimeMillis();
+        if (!tryAcquireQuotas(userId, channelId, priority != Priority.INTERACTIVE, now)) {
+            rejectedByQuota.incrementAndGet();
+            shedReply.accept(quotaResponse);
+            return;
+        }
+        if (pending.get() == 0) {
+            // Leere Warteschlange: die alte Messung ist nicht mehr aussagekräftig
+            queueLatency.set(Double.doubleToLongBits(0));
+        }
+        if (priority != Priority.INTERACTIVE && (pending.get() >= queueCapacity || getQueueLatency() > shedLatencyMillis)) {
+            shed.incrementAndGet();
+            shedReply.accept(busyResponse);
+            return;
+        }
+
+        Task task = new Task(priority, sequence.incrementAndGet(), now, work, shedReply);
+        admitted.incrementAndGet();
+        pending.incrementAndGet();
+        queue.add(task);
+        if (priority == Priority.INTERACTIVE) {
+            // Wer die Aufgabe zuerst bekommt, führt sie aus; der Eintrag in der anderen Queue verfällt
+            interactiveQueue.add(task);
+        }
+    }
+
+    private void run(Task task) {
+        if (!task.claimed.compareAndSet(false, true)) {
+            return;
+        }
+        pending.decrementAndGet();
+        long waited = System.currentTimeMillis() - task.enqueuedAt;
+        queueLatency.updateAndGet(bits -> Double.doubleToLongBits(Double.longBitsToDouble(bits) * 0.8 + waited * 0.2));
+        if (task.priority != Priority.INTERACTIVE && waited > shedLatencyMillis) {
+            shed.incrementAndGet();
+            task.shedReply.accept(busyResponse);
+            return;
+        }
+        try {
+            task.work.run();
+        } catch (RuntimeException e) {
+            failed.incrementAndGet();
+            System.err.println("Fehler bei der Verarbeitung einer KI-Anfrage: " + e.getMessage());
+            try {
+                task.shedReply.accept(errorResponse);
+            } catch (RuntimeException replyError) {
+                System.err.println("Fehlerantwort konnte nicht gesendet werden: " + replyError.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Gleitende Fenster: höchstens userQuota Anfragen pro Minute und Nutzer, bei channelQuotaApplies
+     * zusätzlich höchstens channelQuota pro Channel. Verbucht wird nur, wenn beide noch Platz haben,
+     * damit eine am Channel gescheiterte Anfrage nicht das Kontingent des Nutzers verbraucht.
+     */
+    private boolean tryAcquireQuotas(String userId, String channelId, boolean channelQuotaApplies, long now) {
+        synchronized (quotaLock) {
+            ArrayDeque<Long> userWindow = window(userWindows, userId, now);
+            ArrayDeque<Long> channelWindow = channelQuotaApplies ? window(channelWindows, channelId, now) : null;
+            if ((userWindow != null && userWindow.size() >= userQuota)
+                    || (channelWindow != null && channelWindow.size() >= channelQuota)) {
+                return false;
+            }
+            if (userWindow != null) {
+                userWindow.addLast(now);
+            }
+            if (channelWindow != null) {
+                channelWindow.addLast(now);
+            }
+            prune(userWindows, now);
+            prune(channelWindows, now);
+            return true;
+        }
+    }
+
+    /**
+     * @return Das Fenster des Schlüssels ohne abgelaufene Einträge, oder null ohne Schlüssel.
+     */
+    private static ArrayDeque<Long> window(Map<String, ArrayDeque<Long>> windows, String key, long now) {
+        if (key == null) {
+            return null;
+        }
+        ArrayDeque<Long> window = windows.computeIfAbsent(key, k -> new ArrayDeque<>());
+        while (!window.isEmpty() && window.peekFirst() <= now - WINDOW_MILLIS) {
+            window.pollFirst();
+        }
+        return window;
+    }
+
+    /**
+     * Entfernt abgelaufene Fenster, damit die Maps bei vielen Nutzern nicht wachsen.
+     */
+    private static void prune(Map<String, ArrayDeque<Long>> windows, long now) {
+        if (windows.size() > 10_000) {
+            windows.values().removeIf(window -> window.isEmpty() || window.peekLast() <= now - WINDOW_MILLIS);
+        }
+    }
+
+    /**
+     * @return Geglättete Wartezeit in der Warteschlange in Millisekunden.
+     */
+    public double getQueueLatency() {
+        return Double.longBitsToDouble(queueLatency.get());
+    }
+
+    public long getAdmitted() {
+        return admitted.get();
+    }
+
+    public long getShed() {
+        return shed.get();
+    }
+
+    public long getRejectedByQuota() {
+        return rejectedByQuota.get();
+    }
+
+    /**
+     * @return Anzahl der Anfragen, die im Worker mit einer Exception abgebrochen sind.
+     */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    private static class Task implements Comparable<Task> {
+        private final Priority priority;
+        private final long sequence;
+        private final long enqueuedAt;
+        private final Runnable work;
+        private final Consumer<String> shedReply;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Task(Priority priority, long sequence, long enqueuedAt, Runnable work, Consumer<String> shedReply) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.enqueuedAt = enqueuedAt;
+            this.work = work;
+            this.shedReply = shedReply;
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+}
@@ -10,10 +10,15 @@ import net.dv8tion.jda.api.interactions.IntegrationType;
 import net.dv8tion.jda.api.interactions.InteractionContextType;
 import net.dv8tion.jda.api.interactions.commands.OptionType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.api.utils.cache.CacheFlag;
+import net.lunapp.analytics.ChatAnalytics;
+import net.lunapp.bus.EventBus;
+import net.lunapp.bus.EventType;
 import net.lunapp.commands.Gemini;
 import net.lunapp.twitch.SocketServer;
+import net.lunapp.twitch.SocketServerSink;
 import net.lunapp.twitch.TwitchBot;
 import org.jetbrains.annotations.NotNull;
 import org.reflections.Reflections;
@@ -33,6 +38,8 @@ public class Main {
     private static Gemini gemini;
     private static TwitchBot twitchBot;
     private static SocketServer socketServer;
+    private static final EventBus eventBus = new EventBus(4096);
+    private static AdmissionController admissionController;
 
     public static void main(String[] args) {
         Properties properties = new Properties();
@@ -42,6 +49,7 @@ public class Main {
         } catch (IOException e) {
             System.err.println("Fehler beim Laden der config.properties: " + e.getMessage());
         }
+        admissionController = new AdmissionController(properties);
 
         JDABuilder builder = JDABuilder.createDefault(token);
 
@@ -61,6 +69,14 @@ public class Main {
             throw new RuntimeException(e);
         }
 
+        // Senken des Event-Busses: jede läuft auf einem eigenen Thread in ihrem eigenen Tempo
+        eventBus.subscribe("websocket", EnumSet.of(EventType.MODEL_REPLY, EventType.SORT_FRAME,
+                EventType.BOT_STATUS, EventType.METRICS), new SocketServerSink(socketServer));
+        eventBus.subscribe("twitch", EnumSet.of(EventType.MODEL_REPLY), twitchBot::onReplyEvent);
+        ChatAnalytics chatAnalytics = new ChatAnalytics();
+        eventBus.subscribe("analytics", EnumSet.of(EventType.CHAT_MESSAGE, EventType.MODEL_REPLY), chatAnalytics);
+        chatAnalytics.start(Integer.parseInt(properties.getProperty("analyticsIntervalSeconds", "5")));
+
         addEvents();
         addCommands();
     }
@@ -75,17 +91,27 @@ public class Main {
                         .addOption(OptionType.ATTACHMENT, "file", "Upload a file", false),
                 Commands.slash("watchlist", "Have a look at the watchlist").setContexts(InteractionContextType.ALL).setIntegrationTypes(IntegrationType.ALL)
                         .addOption(OptionType.STRING, "add", "Add a show to your watchlist", false)
-                        .addOption(OptionType.STRING, "remove", "Remove a show from your watchlist", false)
+                        .addOption(OptionType.STRING, "remove", "Remove a show from your watchlist", false, true)
                         .addOption(OptionType.STRING, "source", "Specify the source of the show", false)
-                        .addOption(OptionType.STRING, "edit", "Edit a show in your watchlist", false)
+                        .addOption(OptionType.STRING, "edit", "Edit a show in your watchlist", false, true)
                         .addOption(OptionType.STRING, "newname", "New name for the show", false)
                         .addOption(OptionType.STRING, "newsource", "New source for the show", false)
-                        .addOption(OptionType.BOOLEAN, "clear", "Clear the entire watchlist", false),
+                        .addOption(OptionType.BOOLEAN, "clear", "Clear the entire watchlist", false)
+                        .addOptions(new OptionData(OptionType.STRING, "scope", "Which watchlist to use (default: server inside a server)", false)
+                                .addChoice("personal", "personal")
+                                .addChoice("server", "server"))
+                        .addOption(OptionType.ATTACHMENT, "import", "Import shows from a JSON or CSV file", false)
+                        .addOptions(new OptionData(OptionType.STRING, "export", "Export the watchlist as a file", false)
+                                .addChoice("json", "json")
+                                .addChoice("csv", "csv")),
                 Commands.slash("newchat", "Reset the chats log history").setContexts(InteractionContextType.ALL).setIntegrationTypes(IntegrationType.ALL),
                 Commands.slash("togglelistener", "Toggle the listener for 'Mitsuki' or 'Koga'").setContexts(InteractionContextType.ALL).setIntegrationTypes(IntegrationType.ALL),
                 Commands.slash("sort", "Try out different sorting algorithms").setContexts(InteractionContextType.ALL).setIntegrationTypes(IntegrationType.ALL)
                         .addOption(OptionType.STRING, "algorithm", "Choose a sorting algorithm", false)
-                        /*.addOption(OptionType.INTEGER, "amount", "Number of elements to sort - max amount: 32", false)*/
+                        .addOptions(new OptionData(OptionType.INTEGER, "workers", "Number of workers for the parallel algorithms", false)
+                                .setRequiredRange(1, 16))
+                        .addOptions(new OptionData(OptionType.INTEGER, "amount", "Number of elements to sort (more than 20 are only shown in the stream overlay)", false)
+                                .setRequiredRange(2, 10_000))
         ).queue();
     }
 
@@ -124,6 +150,15 @@ public class Main {
         });
     }
 
+    /**
+     * Setzt die Kernkomponenten ohne Discord-Verbindung, z. B. für die Chat-Simulation.
+     */
+    public static void initHeadless(AdmissionController admission, Gemini gemini, TwitchBot twitchBot) {
+        Main.admissionController = admission;
+        Main.gemini = gemini;
+        Main.twitchBot = twitchBot;
+    }
+
     public static void toggleListener() {
         listenerEnabled = !listenerEnabled;
     }
@@ -179,4 +214,12 @@ public class Main {
     public static SocketServer getSocketServer() {
         return socketServer;
     }
+
+    public static EventBus getEventBus() {
+        return eventBus;
+    }
+
+    public static AdmissionController getAdmissionController() {
+        return admissionController;
+    }
 }
@@ -0,0 +1,205 @@
+package net.lunapp.analytics;
+
+import net.lunapp.AdmissionController;
+import net.lunapp.Main;
+import net.lunapp.bus.Event;
+import net.lunapp.bus.EventHandler;
+import net.lunapp.bus.EventType;
+import net.lunapp.twitch.ChatMessageInfo;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Laufende Statistiken über den Twitch-Chat, berechnet mit festem Speicher pro Channel:
+ * Nachrichten pro Sekunde über gleitende Fenster, geschätzte Anzahl verschiedener Chatter
+ * (HyperLogLog), die häufigsten Wörter und Emotes (Count-Min-Sketch mit Top-K) sowie die
+ * Trefferquote für Gemini. Der Snapshot wird periodisch als METRICS-Event veröffentlicht.
+ */
+public class ChatAnalytics implements EventHandler {
+
+    private static final int HLL_PRECISION = 12;
+    // Chatter der letzten Stunde: 12 Epochen zu je 5 Minuten, die bei Bedarf vereinigt werden
+    private static final int CHATTER_EPOCHS = 12;
+    private static final long EPOCH_MILLIS = 5 * 60_000;
+    private static final int TOP_K = 10;
+    private static final long DECAY_MILLIS = 5 * 60_000;
+    private static final Set<String> STOP_WORDS = new HashSet<>(List.of(
+            "the", "and", "you", "for", "are", "that", "this", "was", "with", "not",
+            "der", "die", "das", "und", "ist", "ich", "du", "nicht", "ein", "eine", "mit", "auf", "den"));
+
+    private final Map<String, ChannelStats> channels = new HashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Startet die periodische Veröffentlichung der Statistiken.
+     *
+     * @param intervalSeconds Abstand zwischen zwei Snapshots.
+     */
+    public void start(int intervalSeconds) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ChatAnalytics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                Main.getEventBus().publish(EventType.METRICS, null, null, null, snapshot());
+            } catch (Exception e) {
+                System.err.println("Fehler beim Veröffentlichen der Chat-Statistiken: " + e.getMessage());
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public synchronized void onEvent(Event event, long sequence) {
+        if (event.getChannel() == null) {
+            return;
+        }
+        ChannelStats stats = channels.computeIfAbsent(event.getChannel(), name -> new ChannelStats());
+        long now = event.getTimestamp();
+        if (event.getType() == EventType.MODEL_REPLY) {
+            stats.replies++;
+            return;
+        }
+        if (event.getType() != EventType.CHAT_MESSAGE) {
+            return;
+        }
+
+        stats.messages++;
+        stats.rate.add(now);
+        stats.rotate(now);
+        if (event.getUser() != null) {
+            stats.chatterEpochs[stats.epoch].add(event.getUser().toLowerCase(Locale.ROOT));
+            stats.allChatters.add(event.getUser().toLowerCase(Locale.ROOT));
+        }
+
+        Set<String> emotes = new HashSet<>();
+        if (event.getPayload() instanceof ChatMessageInfo) {
+            ChatMessageInfo info = (ChatMessageInfo) event.getPayload();
+            if (info.isTriggered()) {
+                stats.triggered++;
+            }
+            for (String emote : info.getEmotes()) {
+                stats.emotes.add(emote);
+                emotes.add(emote);
+            }
+        }
+        if (event.getText() != null) {
+            for (String token : event.getText().split("\\s+")) {
+                if (emotes.contains(token)) {
+                    continue;
+                }
+                String word = token.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]", "");
+                if (word.length() >= 3 && !STOP_WORDS.contains(word)) {
+                    stats.words.add(word);
+                }
+            }
+        }
+        if (now - stats.lastDecay > DECAY_MILLIS) {
+            stats.words.decay();
+            stats.emotes.decay();
+            stats.lastDecay = now;
+        }
+    }
+
+    /**
+     * @return Die aktuellen Statistiken aller Channels als JSON.
+     */
+    public synchronized JSONObject snapshot() {
+        long now = System.currentTimeMillis();
+        JSONObject result = new JSONObject();
+        result.put("kind", "chat");
+        result.put("timestamp", now);
+
+        JSONObject perChannel = new JSONObject();
+        for (Map.Entry<String, ChannelStats> entry : channels.entrySet()) {
+            ChannelStats stats = entry.getValue();
+            stats.rotate(now);
+            JSONObject json = new JSONObject();
+            json.put("messages", stats.messages);
+            json.put("messagesPerSecond", new JSONObject()
+                    .put("10s", stats.rate.rate(now, 10))
+                    .put("60s", stats.rate.rate(now, 60))
+                    .put("300s", stats.rate.rate(now, 300)));
+            HyperLogLog lastHour = new HyperLogLog(HLL_PRECISION);
+            for (HyperLogLog epoch : stats.chatterEpochs) {
+                lastHour.merge(epoch);
+            }
+            json.put("uniqueChatters", new JSONObject()
+                    .put("lastHour", lastHour.estimate())
+                    .put("total", stats.allChatters.estimate()));
+            json.put("topWords", ranked(stats.words.snapshot()));
+            json.put("topEmotes", ranked(stats.emotes.snapshot()));
+            json.put("geminiTriggers", stats.triggered);
+            json.put("geminiHitRate", stats.messages == 0 ? 0 : (double) stats.triggered / stats.messages);
+            json.put("replies", stats.replies);
+            perChannel.put(entry.getKey(), json);
+        }
+        result.put("channels", perChannel);
+
+        AdmissionController admission = Main.getAdmissionController();
+        if (admission != null) {
+            result.put("ai", new JSONObject()
+                    .put("admitted", admission.getAdmitted())
+                    .put("shed", admission.getShed())
+                    .put("rejectedByQuota", admission.getRejectedByQuota())
+                    .put("failed", admission.getFailed())
+                    .put("queueLatencyMillis", admission.getQueueLatency()));
+        }
+        return result;
+    }
+
+    /**
+     * JSON-Objekte haben keine Reihenfolge, daher als Array: [{"word": ..., "count": ...}, ...]
+     * mit dem häufigsten Eintrag zuerst.
+     */
+    private static JSONArray ranked(Map<String, Integer> counts) {
+        JSONArray ranking = new JSONArray();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            ranking.put(new JSONObject().put("word", entry.getKey()).put("count", entry.getValue()));
+        }
+        return ranking;
+    }
+
+    private static class ChannelStats {
+        private final RateWindow rate = new RateWindow(300);
+        private final HyperLogLog[] chatterEpochs = new HyperLogLog[CHATTER_EPOCHS];
+        private final HyperLogLog allChatters = new HyperLogLog(HLL_PRECISION);
+        private final TopK words = new TopK(TOP_K, new CountMinSketch(4, 2048));
+        private final TopK emotes = new TopK(TOP_K, new CountMinSketch(4, 1024));
+        private long messages;
+        private long triggered;
+        private long replies;
+        private int epoch;
+        private long epochStart = System.currentTimeMillis();
+        private long lastDecay = System.currentTimeMillis();
+
+        ChannelStats() {
+            for (int i = 0; i < chatterEpochs.length; i++) {
+                chatterEpochs[i] = new HyperLogLog(HLL_PRECISION);
+            }
+        }
+
+        /**
+         * Wechselt in die nächste Chatter-Epoche, wenn die aktuelle abgelaufen ist;
+         * die älteste Epoche wird dabei geleert.
+         */
+        void rotate(long now) {
+            while (now - epochStart >= EPOCH_MILLIS) {
+                epoch = (epoch + 1) % chatterEpochs.length;
+                chatterEpochs[epoch].clear();
+                epochStart += EPOCH_MILLIS;
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package net.lunapp.analytics;
+
+/**
+ * Count-Min-Sketch: schätzt Häufigkeiten mit festem Speicher. Die Schätzung ist nie zu klein,
+ * kann aber durch Kollisionen zu groß sein.
+ *
+ * Nicht threadsicher.
+ */
+public class CountMinSketch {
+
+    private final int depth;
+    private final int mask;
+    private final int[][] counts;
+
+    /**
+     * @param depth Anzahl der Zeilen (Hashfunktionen).
+     * @param width Breite jeder Zeile; muss eine Zweierpotenz sein.
+     */
+    public CountMinSketch(int depth, int width) {
+        if (Integer.bitCount(width) != 1) {
+            throw new IllegalArgumentException("width muss eine Zweierpotenz sein");
+        }
+        this.depth = depth;
+        this.mask = width - 1;
+        this.counts = new int[depth][width];
+    }
+
+    /**
+     * Zählt ein Element und gibt die neue Schätzung zurück.
+     */
+    public int add(String value) {
+        long hash = Hashing.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            // Zeilen-Hashes nach Kirsch/Mitzenmacher aus einem einzigen 64-Bit-Hash
+            int column = (h1 + row * h2) & mask;
+            int count = ++counts[row][column];
+            estimate = Math.min(estimate, count);
+        }
+        return estimate;
+    }
+
+    public int estimate(String value) {
+        long hash = Hashing.hash64(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        int estimate = Integer.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counts[row][(h1 + row * h2) & mask]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Halbiert alle Zähler, damit alte Häufigkeiten allmählich an Gewicht verlieren.
+     */
+    public void decay() {
+        for (int[] row : counts) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>>= 1;
+            }
+        }
+    }
+}
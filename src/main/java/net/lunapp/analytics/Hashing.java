@@ -0,0 +1,25 @@
+package net.lunapp.analytics;
+
+/**
+ * 64-Bit-Hash für Strings (FNV-1a über die Zeichen, danach der Finalizer von MurmurHash3).
+ * String.hashCode reicht für die Skizzen nicht, weil dort 64 gut verteilte Bits gebraucht werden.
+ */
+final class Hashing {
+
+    private Hashing() {
+    }
+
+    static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
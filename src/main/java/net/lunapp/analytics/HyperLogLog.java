@@ -0,0 +1,74 @@
+package net.lunapp.analytics;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog zum Schätzen der Anzahl verschiedener Elemente (z. B. Chatter) mit festem Speicher.
+ * Bei 2^12 Registern liegt der typische Fehler bei etwa 1,6 %.
+ *
+ * Nicht threadsicher.
+ */
+public class HyperLogLog {
+
+    private final int precision;
+    private final byte[] registers;
+
+    /**
+     * @param precision Anzahl der Index-Bits (4 bis 16); belegt 2^precision Bytes.
+     */
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision muss zwischen 4 und 16 liegen");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public void add(String value) {
+        long hash = Hashing.hash64(value);
+        int index = (int) (hash >>> (64 - precision));
+        // Das gesetzte Bit begrenzt den Rang, falls die restlichen Bits alle 0 sind
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    /**
+     * Übernimmt die Register eines anderen HyperLogLog gleicher Präzision (Vereinigungsmenge).
+     */
+    public void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Unterschiedliche Präzision");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double alpha = 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        // Kleine Mengen: lineares Zählen ist dort genauer
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public void clear() {
+        Arrays.fill(registers, (byte) 0);
+    }
+}
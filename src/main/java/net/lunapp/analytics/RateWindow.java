@@ -0,0 +1,47 @@
+package net.lunapp.analytics;
+
+/**
+ * Zählt Ereignisse in Sekunden-Buckets eines Ringpuffers, um Raten über gleitende Fenster
+ * (z. B. die letzten 10 s, 60 s, 300 s) zu berechnen.
+ *
+ * Nicht threadsicher.
+ */
+public class RateWindow {
+
+    private final long[] seconds;
+    private final int[] counts;
+
+    /**
+     * @param maxWindowSeconds Das größte abfragbare Fenster.
+     */
+    public RateWindow(int maxWindowSeconds) {
+        this.seconds = new long[maxWindowSeconds];
+        this.counts = new int[maxWindowSeconds];
+    }
+
+    public void add(long nowMillis) {
+        long second = nowMillis / 1000;
+        int slot = (int) (second % seconds.length);
+        if (seconds[slot] != second) {
+            seconds[slot] = second;
+            counts[slot] = 0;
+        }
+        counts[slot]++;
+    }
+
+    /**
+     * @return Ereignisse pro Sekunde in den letzten windowSeconds Sekunden.
+     */
+    public double rate(long nowMillis, int windowSeconds) {
+        int window = Math.min(windowSeconds, seconds.length);
+        long now = nowMillis / 1000;
+        long total = 0;
+        for (long second = now - window + 1; second <= now; second++) {
+            int slot = (int) (second % seconds.length);
+            if (seconds[slot] == second) {
+                total += counts[slot];
+            }
+        }
+        return (double) total / window;
+    }
+}
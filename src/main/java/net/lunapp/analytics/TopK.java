@@ -0,0 +1,67 @@
+package net.lunapp.analytics;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Die k häufigsten Elemente eines Datenstroms. Die Häufigkeiten stammen aus einem
+ * {@link CountMinSketch}; gespeichert werden nur die aktuell k besten Kandidaten.
+ *
+ * Nicht threadsicher.
+ */
+public class TopK {
+
+    private final int k;
+    private final CountMinSketch sketch;
+    private final Map<String, Integer> candidates = new HashMap<>();
+
+    public TopK(int k, CountMinSketch sketch) {
+        this.k = k;
+        this.sketch = sketch;
+    }
+
+    public void add(String value) {
+        int estimate = sketch.add(value);
+        if (candidates.containsKey(value) || candidates.size() < k) {
+            candidates.put(value, estimate);
+            return;
+        }
+        String weakest = null;
+        int weakestCount = Integer.MAX_VALUE;
+        for (Map.Entry<String, Integer> entry : candidates.entrySet()) {
+            if (entry.getValue() < weakestCount) {
+                weakest = entry.getKey();
+                weakestCount = entry.getValue();
+            }
+        }
+        if (estimate > weakestCount) {
+            candidates.remove(weakest);
+            candidates.put(value, estimate);
+        }
+    }
+
+    /**
+     * Halbiert die Häufigkeiten im Sketch und bei den Kandidaten.
+     */
+    public void decay() {
+        sketch.decay();
+        candidates.replaceAll((value, count) -> sketch.estimate(value));
+        candidates.values().removeIf(count -> count == 0);
+    }
+
+    /**
+     * @return Die Kandidaten absteigend nach geschätzter Häufigkeit.
+     */
+    public Map<String, Integer> snapshot() {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(candidates.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        Map<String, Integer> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Integer> entry : entries) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+}
@@ -0,0 +1,58 @@
+package net.lunapp.bus;
+
+/**
+ * Ein vorab angelegter Slot im Ringpuffer des {@link EventBus}. Slots werden wiederverwendet;
+ * Konsumenten dürfen deshalb keine Referenz auf das Event über {@link EventHandler#onEvent} hinaus halten,
+ * sondern müssen benötigte Felder kopieren.
+ */
+public final class Event {
+
+    private EventType type;
+    private String channel;
+    private String user;
+    private String text;
+    private Object payload;
+    private long timestamp;
+
+    Event() {
+    }
+
+    void set(EventType type, String channel, String user, String text, Object payload) {
+        this.type = type;
+        this.channel = channel;
+        this.user = user;
+        this.text = text;
+        this.payload = payload;
+        this.timestamp = System.currentTimeMillis();
+    }
+
+    public EventType getType() {
+        return type;
+    }
+
+    /**
+     * @return Der Kanal, aus dem das Event stammt bzw. in den es gehört (z. B. Twitch-Channel), oder null.
+     */
+    public String getChannel() {
+        return channel;
+    }
+
+    public String getUser() {
+        return user;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * @return Zusätzliche Nutzdaten, z. B. ein int[] bei Sortier-Frames, oder null.
+     */
+    public Object getPayload() {
+        return payload;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,222 @@
+package net.lunapp.bus;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Prozessinterner Event-Bus nach dem Vorbild des Disruptors.
+ *
+ * Alle Events liegen in einem Ringpuffer mit vorab angelegten Slots. Produzenten reservieren
+ * eine Sequenznummer per atomarem Inkrement, füllen den Slot und markieren ihn als veröffentlicht;
+ * dabei wird kein Lock genommen. Jeder Konsument hat einen eigenen Cursor und einen eigenen Thread,
+ * liest alle bereits veröffentlichten Events als Stapel und rückt seinen Cursor erst danach vor.
+ * Ein Produzent wartet nur, wenn der Ringpuffer den langsamsten Konsumenten einholen würde.
+ */
+public class EventBus {
+
+    private static final Logger log = LoggerFactory.getLogger(EventBus.class);
+
+    private final int capacity;
+    private final int mask;
+    private final int indexShift;
+    private final Event[] slots;
+    // Pro Slot die "Runde" (seq / capacity), in der er zuletzt veröffentlicht wurde
+    private final AtomicIntegerArray published;
+    private final AtomicLong claimCursor = new AtomicLong(-1);
+    private final List<ConsumerThread> consumers = new CopyOnWriteArrayList<>();
+    // Zwischengespeichertes Minimum der Konsumenten-Cursor, damit Produzenten selten alle lesen müssen
+    private volatile long gatingCache = -1;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity Anzahl der Slots; muss eine Zweierpotenz sein.
+     */
+    public EventBus(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity muss eine Zweierpotenz sein");
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(capacity);
+        this.slots = new Event[capacity];
+        this.published = new AtomicIntegerArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Event();
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Registriert einen Konsumenten und startet dessen Thread. Der Konsument sieht alle Events,
+     * die nach der Registrierung veröffentlicht werden.
+     *
+     * @param name    Name für Thread und Logs.
+     * @param types   Die abonnierten Event-Typen.
+     * @param handler Der Handler.
+     */
+    public void subscribe(String name, Set<EventType> types, EventHandler handler) {
+        ConsumerThread consumer = new ConsumerThread(name, EnumSet.copyOf(types), handler, claimCursor.get());
+        consumers.add(consumer);
+        consumer.start();
+    }
+
+    /**
+     * Veröffentlicht ein Event. Wartet, falls der Ringpuffer voll ist.
+     */
+    public void publish(EventType type, String channel, String user, String text, Object payload) {
+        long seq = claimCursor.incrementAndGet();
+        long wrapPoint = seq - capacity;
+        if (wrapPoint > gatingCache) {
+            long min;
+            while (wrapPoint > (min = minimumConsumerSequence(seq - 1))) {
+                LockSupport.parkNanos(100_000);
+            }
+            gatingCache = min;
+        }
+        write(seq, type, channel, user, text, payload);
+    }
+
+    /**
+     * Veröffentlicht ein Event nur, wenn sofort Platz ist. Gedacht für Produzenten,
+     * die nie warten dürfen und einzelne Events verlieren können (z. B. Animations-Frames).
+     *
+     * @return false, wenn der Ringpuffer voll war.
+     */
+    public boolean tryPublish(EventType type, String channel, String user, String text, Object payload) {
+        long current;
+        long seq;
+        do {
+            current = claimCursor.get();
+            seq = current + 1;
+            long wrapPoint = seq - capacity;
+            if (wrapPoint > gatingCache) {
+                long min = minimumConsumerSequence(current);
+                gatingCache = min;
+                if (wrapPoint > min) {
+                    return false;
+                }
+            }
+        } while (!claimCursor.compareAndSet(current, seq));
+        write(seq, type, channel, user, text, payload);
+        return true;
+    }
+
+    private void write(long seq, EventType type, String channel, String user, String text, Object payload) {
+        int index = (int) (seq & mask);
+        slots[index].set(type, channel, user, text, payload);
+        // lazySet genügt: der Slot ist vollständig geschrieben, bevor die Runde sichtbar wird
+        published.lazySet(index, (int) (seq >>> indexShift));
+    }
+
+    private boolean isPublished(long seq) {
+        return published.get((int) (seq & mask)) == (int) (seq >>> indexShift);
+    }
+
+    private long minimumConsumerSequence(long defaultValue) {
+        long min = defaultValue;
+        for (ConsumerThread consumer : consumers) {
+            min = Math.min(min, consumer.sequence.get());
+        }
+        return min;
+    }
+
+    /**
+     * @return Die zuletzt reservierte Sequenznummer.
+     */
+    public long getCursor() {
+        return claimCursor.get();
+    }
+
+    /**
+     * @return Wie viele Events der langsamste Konsument zurückliegt.
+     */
+    public long getMaxLag() {
+        long cursor = claimCursor.get();
+        return cursor - minimumConsumerSequence(cursor);
+    }
+
+    /**
+     * Beendet alle Konsumenten-Threads.
+     */
+    public void shutdown() {
+        running = false;
+        for (ConsumerThread consumer : consumers) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private class ConsumerThread extends Thread {
+        private final Set<EventType> types;
+        private final EventHandler handler;
+        // Zuletzt vollständig verarbeitete Sequenznummer
+        private final AtomicLong sequence;
+
+        ConsumerThread(String name, Set<EventType> types, EventHandler handler, long start) {
+            super("EventBus-" + name);
+            setDaemon(true);
+            this.types = types;
+            this.handler = handler;
+            this.sequence = new AtomicLong(start);
+        }
+
+        @Override
+        public void run() {
+            long next = sequence.get() + 1;
+            int idleRounds = 0;
+            while (running) {
+                // Höchste lückenlos veröffentlichte Sequenznummer ab next bestimmen
+                long claimed = claimCursor.get();
+                long highest = next - 1;
+                while (highest < claimed && isPublished(highest + 1)) {
+                    highest++;
+                }
+                if (highest < next) {
+                    idle(idleRounds++);
+                    continue;
+                }
+                idleRounds = 0;
+
+                for (long seq = next; seq <= highest; seq++) {
+                    Event event = slots[(int) (seq & mask)];
+                    if (!types.contains(event.getType())) {
+                        continue;
+                    }
+                    try {
+                        handler.onEvent(event, seq);
+                    } catch (Exception e) {
+                        log.error("Fehler in Event-Handler " + getName(), e);
+                    }
+                }
+                try {
+                    handler.onEndOfBatch();
+                } catch (Exception e) {
+                    log.error("Fehler in Event-Handler " + getName(), e);
+                }
+                // Cursor erst nach dem ganzen Stapel vorrücken; erst dann dürfen die Slots überschrieben werden
+                sequence.lazySet(highest);
+                next = highest + 1;
+            }
+        }
+
+        /**
+         * Wartestrategie ohne Lock: kurz spinnen, dann abgeben, dann zunehmend länger schlafen.
+         */
+        private void idle(int rounds) {
+            if (rounds < 100) {
+                Thread.onSpinWait();
+            } else if (rounds < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(rounds < 1_000 ? 50_000 : 1_000_000);
+            }
+        }
+    }
+}
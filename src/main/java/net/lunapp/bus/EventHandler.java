@@ -0,0 +1,23 @@
+package net.lunapp.bus;
+
+/**
+ * Konsument des {@link EventBus}. Jeder Handler läuft auf einem eigenen Thread
+ * und verarbeitet Events in der Reihenfolge ihrer Sequenznummern.
+ */
+@FunctionalInterface
+public interface EventHandler {
+
+    /**
+     * Verarbeitet ein Event eines abonnierten Typs.
+     *
+     * @param event    Der Slot; nur während des Aufrufs gültig.
+     * @param sequence Die Sequenznummer des Events.
+     */
+    void onEvent(Event event, long sequence) throws Exception;
+
+    /**
+     * Wird nach jedem verarbeiteten Stapel aufgerufen, z. B. um gesammelte Arbeit zu flushen.
+     */
+    default void onEndOfBatch() throws Exception {
+    }
+}
@@ -0,0 +1,17 @@
+package net.lunapp.bus;
+
+/**
+ * Typisierte Topics des {@link EventBus}. Konsumenten abonnieren eine Menge dieser Typen.
+ */
+public enum EventType {
+    /** Eine Chatnachricht (z. B. aus Twitch). */
+    CHAT_MESSAGE,
+    /** Eine Antwort des Modells, die in einen Chat gesendet werden soll. */
+    MODEL_REPLY,
+    /** Ein Zwischenstand einer Sortier-Animation. */
+    SORT_FRAME,
+    /** Statusänderungen des Bots. */
+    BOT_STATUS,
+    /** Kennzahlen für Dashboards. */
+    METRICS
+}
@@ -9,6 +9,7 @@ import net.dv8tion.jda.api.events.message.MessageReceivedEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import net.dv8tion.jda.api.interactions.components.buttons.Button;
+import net.lunapp.AdmissionController;
 import net.lunapp.Command;
 import net.lunapp.Main;
 import org.jetbrains.annotations.NotNull;
@@ -23,22 +24,65 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 
 @Command
 public class Gemini extends ListenerAdapter {
 
-    private final List<Messages> userPrompts = new ArrayList<>();
-    private final List<String> unicodeFaces = new ArrayList<>();
     private static final String SHORT_TERM_MEMORY_FILE = "short_term_memory.json";
     private static final String LONG_TERM_MEMORY_FILE = "long_term_memory.json";
+    // Maximale Anzahl gespeicherter Nachrichten pro Channel
+    private static final int MAX_HISTORY_PER_CHANNEL = 20;
+    // Maximale Anzahl Channels im Kurzzeitspeicher; der am längsten unbenutzte fällt heraus
+    private static final int MAX_CHANNELS_IN_MEMORY = 50;
+    // Änderungen innerhalb dieser Zeit werden mit einem Schreibvorgang gespeichert
+    private static final long MEMORY_SAVE_DELAY_MILLIS = 1_000;
+    // Schreibt den Kurzzeitspeicher, nie in einem KI-Worker
+    private static final ScheduledExecutorService MEMORY_WRITER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Gemini-Memory");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Kurzzeitspeicher: Channel-ID -> Verlauf, in Reihenfolge der letzten Benutzung (LRU)
+    private final Map<String, ArrayDeque<Messages>> userPrompts =
+            new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, ArrayDeque<Messages>> eldest) {
+                    return size() > MAX_CHANNELS_IN_MEMORY;
+                }
+            };
+    private final List<String> unicodeFaces = new ArrayList<>();
+    // Fester Endpoint statt "gemini" aus der config.properties, z. B. ein lokaler Fake in der Simulation
+    private final String endpointOverride;
+    // false: Kurz- und Langzeitspeicher werden weder gelesen noch geschrieben
+    private final boolean persistent;
+    private final AtomicBoolean saveScheduled = new AtomicBoolean();
 
     /**
      * Konstruktor. Lädt Unicode-Faces aus der Konfiguration und den Kurzzeitspeicher.
      */
     public Gemini() {
+        this(null, true);
+    }
+
+    /**
+     * Konstruktor für Simulationen und Tests.
+     *
+     * @param endpointOverride Endpoint, der statt des konfigurierten verwendet wird (oder null).
+     * @param persistent       Ob die Speicherdateien gelesen und geschrieben werden.
+     */
+    public Gemini(String endpointOverride, boolean persistent) {
+        this.endpointOverride = endpointOverride;
+        this.persistent = persistent;
         loadUnicodeFaces();
-        loadMemory();
+        if (persistent) {
+            loadMemory();
+        }
     }
 
     /**
@@ -69,7 +113,7 @@ public class Gemini extends ListenerAdapter {
                     String author = jsonObject.getString("author");
                     String channelId = jsonObject.optString("channelId", "");
                     String timestamp = jsonObject.optString("timestamp", "");
-                    userPrompts.add(new Messages(message, author, channelId, timestamp));
+                    add(new Messages(message, author, channelId, timestamp));
                 }
             }
         } catch (IOException e) {
@@ -78,29 +122,82 @@ public class Gemini extends ListenerAdapter {
     }
 
     /**
-     * Speichert den Kurzzeitspeicher (userPrompts) in eine JSON-Datei.
+     * Plant das Speichern des Kurzzeitspeichers ein. Alle Änderungen bis dahin landen in einem
+     * Schreibvorgang; der Aufrufer wartet nie auf die Datei.
+     */
+    private void scheduleSave() {
+        if (persistent && saveScheduled.compareAndSet(false, true)) {
+            MEMORY_WRITER.schedule(this::saveMemory, MEMORY_SAVE_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Speichert den Kurzzeitspeicher (userPrompts) in eine JSON-Datei. Nur das JSON entsteht unter der
+     * Sperre; geschrieben wird in eine temporäre Datei, die danach die alte ersetzt, damit ein Absturz
+     * mitten im Schreiben nicht den Verlauf aller Channels kostet.
      */
     private void saveMemory() {
-        try {
-            JSONArray jsonArray = new JSONArray();
-            for (Messages message : userPrompts) {
-                JSONObject jsonObject = new JSONObject();
-                jsonObject.put("message", message.getMessage());
-                jsonObject.put("author", message.getAuthor());
-                jsonObject.put("channelId", message.getChannelId());
-                jsonObject.put("timestamp", message.getTimestamp());
-                jsonArray.put(jsonObject);
+        // Vor dem Kopieren zurücksetzen: spätere Änderungen planen einen neuen Schreibvorgang ein
+        saveScheduled.set(false);
+        JSONArray jsonArray = new JSONArray();
+        synchronized (userPrompts) {
+            // Am längsten unbenutzte Channels zuerst, damit loadMemory die Reihenfolge wiederherstellt
+            for (ArrayDeque<Messages> history : userPrompts.values()) {
+                for (Messages message : history) {
+                    JSONObject jsonObject = new JSONObject();
+                    jsonObject.put("message", message.getMessage());
+                    jsonObject.put("author", message.getAuthor());
+                    jsonObject.put("channelId", message.getChannelId());
+                    jsonObject.put("timestamp", message.getTimestamp());
+                    jsonArray.put(jsonObject);
+                }
             }
-            Files.writeString(Paths.get(SHORT_TERM_MEMORY_FILE),
-                    jsonArray.toString(),
+        }
+        try {
+            Path target = Paths.get(SHORT_TERM_MEMORY_FILE);
+            Path temp = Paths.get(SHORT_TERM_MEMORY_FILE + ".tmp");
+            Files.writeString(temp, jsonArray.toString(),
                     StandardOpenOption.CREATE,
                     StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (IOException e) {
             System.err.println("Fehler beim Speichern des Kurzzeitspeichers: " + e.getMessage());
         }
     }
 
-    private void processMemoryControl(String prompt) {
+    /**
+     * Fügt eine Nachricht zum Kurzzeitspeicher hinzu und plant das Speichern ein. Der Verlauf wird pro Channel begrenzt,
+     * damit ein aktiver Channel den Verlauf der anderen nicht verdrängt; insgesamt werden höchstens
+     * {@value #MAX_CHANNELS_IN_MEMORY} Channels gehalten.
+     *
+     * @param message Die Nachricht.
+     */
+    private void remember(Messages message) {
+        add(message);
+        scheduleSave();
+    }
+
+    private void add(Messages message) {
+        synchronized (userPrompts) {
+            ArrayDeque<Messages> history = userPrompts.computeIfAbsent(message.getChannelId(), id -> new ArrayDeque<>());
+            history.addLast(message);
+            if (history.size() > MAX_HISTORY_PER_CHANNEL) {
+                history.removeFirst();
+            }
+        }
+    }
+
+    /**
+     * Fragt das Modell, ob der Prompt eine Erinnerung speichern oder löschen soll.
+     *
+     * @param prompt    Die Benutzeranfrage.
+     * @param channelId Die Channel-ID; nur deren Verlauf wird mitgeschickt.
+     */
+    private void processMemoryControl(String prompt, String channelId) {
         // Angepasste Memory-Control-Anweisung:
         String memoryInstructions = "Überlege, ob der User eine Erinnerung speichern oder löschen möchte. "
                 + "Wenn der User etwas speichern möchte, extrahiere genau die Zeichenfolge oder den Text, den der User zum Speichern vorgibt, "
@@ -110,7 +207,7 @@ public class Gemini extends ListenerAdapter {
                 + "Keinen zusätzlichen Text, keine weitere Antwort. Deine einzige Aufgabe ist es, das Speichern zu kontrollieren.";
 
         if (!prompt.isEmpty()) {
-            JSONObject payload = buildPayload(prompt, memoryInstructions, null);
+            JSONObject payload = buildPayload(prompt, memoryInstructions, channelId);
             String response = sendGeminiRequest(payload).trim();
             System.out.println("(Memory Control - log): " + response);
 
@@ -156,7 +253,7 @@ public class Gemini extends ListenerAdapter {
     private void updateLongTermMemory(String text, boolean remove) {
         Properties properties = loadConfigProperties();
         boolean memoryEnabled = Boolean.parseBoolean(properties.getProperty("longTermMemoryEnabled", "false"));
-        if (!memoryEnabled) {
+        if (!memoryEnabled || !persistent) {
             // Falls die Speicherung von Erinnerungen deaktiviert ist, wird nichts unternommen.
             return;
         }
@@ -219,24 +316,23 @@ public class Gemini extends ListenerAdapter {
      *
      * @param promptText            Die Textnachricht des Benutzers.
      * @param systemInstructionText Der systemPrompt (optional).
-     * @param channelId             Die Channel-ID zur Filterung des Gesprächsverlaufs (optional).
+     * @param channelId             Die Channel-ID, deren Gesprächsverlauf mitgeschickt wird.
      * @return Das erstellte JSONObject.
      */
     private JSONObject buildPayload(String promptText, String systemInstructionText, String channelId) {
         JSONArray contents = new JSONArray();
-        // Filtere den Kurzzeitspeicher nach Channel, falls channelId gesetzt ist
-        for (Messages message : userPrompts) {
-            if (channelId != null && !message.getChannelId().equals(channelId)) {
-                continue;
+        // Nur der Verlauf dieses Channels
+        synchronized (userPrompts) {
+            for (Messages message : userPrompts.getOrDefault(channelId, new ArrayDeque<>())) {
+                JSONObject msgObj = new JSONObject();
+                msgObj.put("role", message.getAuthor());
+                JSONArray parts = new JSONArray();
+                JSONObject partObj = new JSONObject();
+                partObj.put("text", message.getMessage());
+                parts.put(partObj);
+                msgObj.put("parts", parts);
+                contents.put(msgObj);
             }
-            JSONObject msgObj = new JSONObject();
-            msgObj.put("role", message.getAuthor());
-            JSONArray parts = new JSONArray();
-            JSONObject partObj = new JSONObject();
-            partObj.put("text", message.getMessage());
-            parts.put(partObj);
-            msgObj.put("parts", parts);
-            contents.put(msgObj);
         }
         // Füge den aktuellen Benutzerprompt hinzu
         JSONObject currentMsg = new JSONObject();
@@ -283,7 +379,7 @@ public class Gemini extends ListenerAdapter {
      */
     private String sendGeminiRequest(JSONObject payload) {
         Properties properties = loadConfigProperties();
-        String endpoint = properties.getProperty("gemini");
+        String endpoint = endpointOverride != null ? endpointOverride : properties.getProperty("gemini");
         try {
             String jsonInput = payload.toString();
             HttpURLConnection conn = (HttpURLConnection) new URL(endpoint).openConnection();
@@ -317,33 +413,37 @@ public class Gemini extends ListenerAdapter {
 
     /**
      * Zentrale Methode zur Verarbeitung von "ask"-Befehlen, sowohl für Slash-Commands als auch normale Nachrichten.
+     * Die Anfrage läuft über die Zulassungskontrolle; wird sie abgewiesen, erhält shedReply eine vorgefertigte Antwort.
      *
-     * @param prompt    Die Benutzeranfrage.
-     * @param role      Die gewünschte Rolle.
-     * @param channelId Die Channel-ID.
-     * @param timestamp Zeitstempel der Nachricht.
-     * @param callback  Callback, um die Antwort zurückzugeben.
+     * @param prompt       Die Benutzeranfrage.
+     * @param instructions Zusätzliche Anweisungen, die an den System-Prompt angehängt werden (oder null).
+     * @param channelId    Die Channel-ID.
+     * @param userId       Die ID des anfragenden Nutzers.
+     * @param priority     Die Prioritätsklasse der Anfrage.
+     * @param timestamp    Zeitstempel der Nachricht.
+     * @param callback     Callback, um die Antwort zurückzugeben.
+     * @param shedReply    Callback für die vorgefertigte Antwort, wenn die Anfrage abgewiesen wird.
      */
-    private void handleAsk(String prompt, String role, String channelId, String timestamp, Consumer<String> callback) {
-        userPrompts.add(new Messages(prompt, "user", channelId, timestamp));
-        if (userPrompts.size() > 20) {
-            userPrompts.remove(0);
-        }
-        saveMemory();
-
-        processMemoryControl(prompt);
-
-        Properties properties = loadConfigProperties();
-        String systemPrompt = properties.getProperty("systemPrompt", "");
-        JSONObject payload = buildPayload(prompt, systemPrompt, channelId);
+    private void handleAsk(String prompt, String instructions, String channelId, String userId,
+                           AdmissionController.Priority priority, String timestamp, Consumer<String> callback,
+                           Consumer<String> shedReply) {
+        Main.getAdmissionController().submit(priority, userId, channelId, () -> {
+            remember(new Messages(prompt, "user", channelId, timestamp));
+
+            processMemoryControl(prompt, channelId);
+
+            Properties properties = loadConfigProperties();
+            String systemPrompt = properties.getProperty("systemPrompt", "");
+            if (instructions != null) {
+                systemPrompt = (systemPrompt + " " + instructions).trim();
+            }
+            JSONObject payload = buildPayload(prompt, systemPrompt, channelId);
 
-        new Thread(() -> {
             String responseText = sendGeminiRequest(payload);
             System.out.println("(Final AI Answer - log): " + responseText);
-            userPrompts.add(new Messages(responseText, "model", channelId, Instant.now().toString()));
-            saveMemory();
+            remember(new Messages(responseText, "model", channelId, Instant.now().toString()));
             callback.accept(responseText);
-        }).start();
+        }, shedReply);
     }
 
     /**
@@ -356,7 +456,6 @@ public class Gemini extends ListenerAdapter {
         String command = event.getName();
         if (command.equalsIgnoreCase("ask")) {
             String prompt = event.getOption("prompt", OptionMapping::getAsString);
-            String role = event.getOption("role", OptionMapping::getAsString);
             event.deferReply().addActionRow(Button.danger("cancel_ask", "Cancel")).queue();
             String channelId;
             if (event.getChannelType().isGuild()) {
@@ -365,16 +464,20 @@ public class Gemini extends ListenerAdapter {
                 channelId = event.getChannel().getId();
             }
             String timestamp = event.getTimeCreated().toString();
-            handleAsk(prompt, role, channelId, timestamp, responseText -> {
+            Consumer<String> reply = responseText -> {
                 String[] parts = splitString(responseText, 2000);
                 event.getHook().editOriginal(parts[0]).setComponents().queue();
                 for (int i = 1; i < parts.length; i++) {
                     event.getHook().sendMessage(parts[i]).queue();
                 }
-            });
+            };
+            handleAsk(prompt, null, channelId, event.getUser().getId(), AdmissionController.Priority.INTERACTIVE,
+                    timestamp, reply, reply);
         } else if (command.equalsIgnoreCase("newchat")) {
-            userPrompts.clear();
-            saveMemory();
+            synchronized (userPrompts) {
+                userPrompts.clear();
+            }
+            scheduleSave();
             event.reply("Chat log wurde zurückgesetzt.").setEphemeral(true).queue();
         } else if (command.equalsIgnoreCase("togglelistener")) {
             Main.toggleListener();
@@ -395,25 +498,33 @@ public class Gemini extends ListenerAdapter {
         event.getChannel().sendTyping().queue();
         String channelId = event.getChannel().getId();
         String timestamp = event.getMessage().getTimeCreated().toString();
-        handleAsk(prompt, role, channelId, timestamp, responseText -> {
+        Consumer<String> reply = responseText -> {
             String[] parts = splitString(responseText, 2000);
             event.getChannel().sendMessage(parts[0]).queue();
             for (int i = 1; i < parts.length; i++) {
                 event.getChannel().sendMessage(parts[i]).queue();
             }
-        });
+        };
+        handleAsk(prompt, null, channelId, event.getAuthor().getId(), AdmissionController.Priority.LISTENER,
+                timestamp, reply, reply);
     }
 
     /**
-     * Neue Methode zur Verarbeitung von Twitch-Nachrichten.
+     * Verarbeitet eine Twitch-Nachricht mit niedrigster Priorität über die Zulassungskontrolle.
+     * Der Gesprächsverlauf wird pro Twitch-Channel getrennt geführt.
      *
+     * @param channel  Der Twitch-Channel.
+     * @param userId   Der Absender oder null, wenn der Prompt mehrere Zuschauer bündelt.
      * @param prompt   Die Twitch-Nachricht.
-     * @param role     Die gewünschte Rolle.
-     * @param callback Callback zur Rückgabe der Antwort.
+     * @param persona  Channel-spezifische Anweisung, die an den System-Prompt angehängt wird.
+     * @param callback  Callback zur Rückgabe der Antwort.
+     * @param shedReply Callback für die vorgefertigte Antwort, wenn die Anfrage abgewiesen wird.
      */
-    public void handleTwitchMessage(String prompt, String role, Consumer<String> callback) {
-        // Verwende die zentrale Methode handleAsk mit "twitch" als Channel-ID und aktuellem Zeitstempel.
-        handleAsk(prompt, role + "Du bist gut gelaunt und freundlich zu allen.", "twitch", Instant.now().toString(), callback);
+    public void handleTwitchMessage(String channel, String userId, String prompt, String persona,
+                                    Consumer<String> callback, Consumer<String> shedReply) {
+        handleAsk(prompt, persona + " Du bist gut gelaunt und freundlich zu allen.", "twitch:" + channel,
+                userId == null ? null : "twitch:" + userId, AdmissionController.Priority.TWITCH,
+                Instant.now().toString(), callback, shedReply);
     }
 
     /**
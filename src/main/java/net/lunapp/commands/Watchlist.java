@@ -2,40 +2,91 @@ package net.lunapp.commands;
 
 import com.google.gson.Gson;
 import com.google.gson.reflect.TypeToken;
-import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.events.interaction.component.ButtonInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.CommandAutoCompleteInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.Interaction;
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.dv8tion.jda.api.interactions.commands.Command.Choice;
 import net.dv8tion.jda.api.interactions.commands.OptionMapping;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
 import net.dv8tion.jda.api.interactions.components.buttons.Button;
+import net.dv8tion.jda.api.utils.FileUpload;
 import net.lunapp.Command;
+import net.lunapp.watchlist.WatchlistRenderer;
+import net.lunapp.watchlist.WatchlistRepository;
+import net.lunapp.watchlist.WatchlistSnapshot;
+import net.lunapp.watchlist.WatchlistStore;
+import net.lunapp.watchlist.WatchlistTransfer;
 import org.jetbrains.annotations.NotNull;
 
-import java.awt.*;
+import java.io.FileInputStream;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.Writer;
 import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Watchlists pro Nutzer ("personal") und pro Server ("server").
+ *
+ * Die eigene Watchlist darf jeder selbst bearbeiten. Die Server-Watchlist dürfen Mitglieder mit
+ * "Server verwalten" oder einer der in "watchlistEditorRoles" (config.properties, Rollennamen oder
+ * -IDs, kommagetrennt) genannten Rollen bearbeiten; ansehen dürfen sie alle.
+ */
 @Command
 public class Watchlist extends ListenerAdapter {
 
     private static final String WATCHLIST_FILE = "watchlist.json";
-    private static final String ADMIN_USER_ID = "464424249877331969";
-    private ArrayList<String> media = new ArrayList<>();
-    private ArrayList<String> source = new ArrayList<>();
+    // Die frühere einzige Watchlist gehörte diesem Nutzer und wird zu seiner persönlichen Watchlist
+    private static final String LEGACY_OWNER_ID = "464424249877331969";
+    private static final String LEGACY_OWNER = "global";
+    // Wert der Autovervollständigung: bleibt gültig, auch wenn sich die Nummern verschieben
+    private static final String ENTRY_ID_PREFIX = "id:";
+    private static final long MAX_IMPORT_BYTES = 20L * 1024 * 1024;
+    private static final long PROGRESS_INTERVAL_MILLIS = 2000;
+    private final WatchlistRepository repository = new WatchlistRepository();
+    private final WatchlistStore store = new WatchlistStore(repository);
+    private final WatchlistRenderer renderer = new WatchlistRenderer();
+    private final Set<String> editorRoles = new HashSet<>();
+    // Import und Export laufen hier statt im JDA-Event-Thread; einer nach dem anderen
+    private final ExecutorService bulkExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Watchlist-Transfer");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     public Watchlist() {
-        loadWatchlist();
+        for (String role : loadConfigProperties().getProperty("watchlistEditorRoles", "Watchlist").split(",")) {
+            if (!role.isBlank()) {
+                editorRoles.add(role.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        migrateLegacyWatchlist();
     }
 
     @Override
     public void onSlashCommandInteraction(@NotNull SlashCommandInteractionEvent event) {
         String command = event.getName();
-        String userId = event.getUser().getId();
 
         if (command.equalsIgnoreCase("watchlist")) {
             String addMedia = event.getOption("add", OptionMapping::getAsString);
@@ -44,36 +95,46 @@ public class Watchlist extends ListenerAdapter {
             String newName = event.getOption("newname", OptionMapping::getAsString);
             String newSource = event.getOption("newsource", OptionMapping::getAsString);
             Boolean clear = event.getOption("clear", OptionMapping::getAsBoolean);
+            String scope = event.getOption("scope", OptionMapping::getAsString);
+            Message.Attachment importFile = event.getOption("import", OptionMapping::getAsAttachment);
+            String exportFormat = event.getOption("export", OptionMapping::getAsString);
 
-            if (userId.equals(ADMIN_USER_ID)) {
-                if (addMedia != null) {
-                    String mediaSource = event.getOption("source", OptionMapping::getAsString);
-                    if (mediaSource == null || mediaSource.isEmpty()) {
-                        mediaSource = "none";
-                    }
-                    addMedia(addMedia, mediaSource);
-                    event.reply("Added \"" + addMedia + "\" to your watchlist with source \"" + mediaSource + "\".").queue();
-                } else if (removeMedia != null) {
-                    removeMediaByNumber(removeMedia, event);
-                } else if (editMedia != null) {
-                    editMediaByNumber(editMedia, newName, newSource, event);
-                } else if (clear != null && clear) {
-                    event.reply("Are you sure you want to clear the entire watchlist? This action cannot be undone.")
-                            .addActionRow(
-                                    Button.danger("clear_confirm", "Yes, clear it"),
-                                    Button.secondary("clear_cancel", "No, cancel")
-                            ).queue();
-                } else {
-                    event.deferReply().queue(); // Show loading animation
-                    printWatchlist(event, 0);
+            String key = resolveKey(event, scope);
+            if (key == null) {
+                event.reply("Server watchlists are only available inside a server.").setEphemeral(true).queue();
+                return;
+            }
+            boolean modifies = addMedia != null || removeMedia != null || editMedia != null || importFile != null
+                    || (clear != null && clear);
+            if (modifies && !canEdit(event, key)) {
+                event.reply("You do not have permission to modify this watchlist.").queue();
+                return;
+            }
+
+            if (addMedia != null) {
+                String mediaSource = event.getOption("source", OptionMapping::getAsString);
+                if (mediaSource == null || mediaSource.isEmpty()) {
+                    mediaSource = "none";
                 }
+                store.add(key, addMedia, mediaSource);
+                event.reply("Added \"" + addMedia + "\" to your watchlist with source \"" + mediaSource + "\".").queue();
+            } else if (removeMedia != null) {
+                removeMediaByNumber(key, removeMedia, event);
+            } else if (editMedia != null) {
+                editMediaByNumber(key, editMedia, newName, newSource, event);
+            } else if (importFile != null) {
+                importWatchlist(key, importFile, event);
+            } else if (exportFormat != null) {
+                exportWatchlist(key, WatchlistTransfer.Format.valueOf(exportFormat.toUpperCase(Locale.ROOT)), event);
+            } else if (clear != null && clear) {
+                event.reply("Are you sure you want to clear the entire watchlist? This action cannot be undone.")
+                        .addActionRow(
+                                Button.danger("clear_confirm:" + key, "Yes, clear it"),
+                                Button.secondary("clear_cancel", "No, cancel")
+                        ).queue();
             } else {
-                if (addMedia != null || removeMedia != null || editMedia != null || (clear != null && clear)) {
-                    event.reply("You do not have permission to modify the watchlist.").queue();
-                } else {
-                    event.deferReply().queue(); // Show loading animation
-                    printWatchlist(event, 0);
-                }
+                WatchlistRenderer.Page page = renderer.render(store.get(key), 0);
+                event.replyEmbeds(page.getEmbed()).setComponents(page.getComponents()).queue();
             }
         }
     }
@@ -82,147 +143,238 @@ public class Watchlist extends ListenerAdapter {
     public void onButtonInteraction(@NotNull ButtonInteractionEvent event) {
         String[] idParts = event.getComponentId().split(":");
         if (idParts[0].equals("watchlist")) {
-            int page = Integer.parseInt(idParts[1]);
-            event.deferEdit().queue(); // Show loading animation
-            printWatchlist(event, page);
-        } else if (event.getComponentId().equals("clear_confirm")) {
-            clearWatchlist(event);
+            WatchlistRenderer.Page page;
+            if (idParts.length == 3) {
+                // watchlist:<Schlüssel>:<Seite>
+                page = renderer.render(store.get(idParts[1]), Integer.parseInt(idParts[2]));
+            } else {
+                // Buttons älterer Nachrichten: eigene bzw. Server-Watchlist von vorne
+                page = renderer.render(store.get(resolveKey(event, null)), 0);
+            }
+            // Die Seite liegt meist schon im Cache, daher direkt antworten statt erst deferEdit
+            event.editMessageEmbeds(page.getEmbed()).setComponents(page.getComponents()).queue();
+        } else if (idParts[0].equals("clear_confirm")) {
+            if (idParts.length != 2) {
+                event.reply("This confirmation has expired, please run the command again.").setEphemeral(true).queue();
+            } else if (!canEdit(event, idParts[1])) {
+                event.reply("You do not have permission to modify this watchlist.").setEphemeral(true).queue();
+            } else {
+                store.clear(idParts[1]);
+                event.reply("The watchlist has been cleared.").queue();
+            }
         } else if (event.getComponentId().equals("clear_cancel")) {
             event.reply("Clearing the watchlist has been canceled.").setEphemeral(true).queue();
         }
     }
 
-    public void addMedia(String newMedia, String mediaSource) {
-        media.add(newMedia);
-        source.add(mediaSource);
-        saveWatchlist();
+    @Override
+    public void onCommandAutoCompleteInteraction(@NotNull CommandAutoCompleteInteractionEvent event) {
+        if (!event.getName().equals("watchlist")) {
+            return;
+        }
+        String option = event.getFocusedOption().getName();
+        if (!option.equals("remove") && !option.equals("edit")) {
+            return;
+        }
+        String key = resolveKey(event, event.getOption("scope", OptionMapping::getAsString));
+        if (key == null) {
+            event.replyChoices().queue();
+            return;
+        }
+        List<Choice> choices = new ArrayList<>();
+        for (WatchlistSnapshot.Item item : store.search(key, event.getFocusedOption().getValue(), OptionData.MAX_CHOICES)) {
+            String name = item.getTitle() + (item.getSource() != null && !item.getSource().equals("none") ? " (" + item.getSource() + ")" : "");
+            if (name.length() > OptionData.MAX_CHOICE_NAME_LENGTH) {
+                name = name.substring(0, OptionData.MAX_CHOICE_NAME_LENGTH - 1) + "…";
+            }
+            choices.add(new Choice(name, ENTRY_ID_PREFIX + item.getId()));
+        }
+        event.replyChoices(choices).queue();
     }
 
-    public void removeMediaByNumber(String mediaNumber, SlashCommandInteractionEvent event) {
+    /**
+     * Entfernt einen Eintrag. reference ist entweder die angezeigte Nummer oder, aus der
+     * Autovervollständigung, "id:" gefolgt von der ID des Eintrags.
+     */
+    public void removeMediaByNumber(String key, String reference, SlashCommandInteractionEvent event) {
         try {
-            int index = Integer.parseInt(mediaNumber) - 1;
-            if (index >= 0 && index < media.size()) {
-                String removedMedia = media.remove(index);
-                source.remove(index);
-                saveWatchlist();
-                event.reply("Removed \"" + removedMedia + "\" from your watchlist.").queue();
+            WatchlistSnapshot.Item removed = reference.startsWith(ENTRY_ID_PREFIX)
+                    ? store.removeById(key, Long.parseLong(reference.substring(ENTRY_ID_PREFIX.length())))
+                    : store.remove(key, Integer.parseInt(reference));
+            if (removed != null) {
+                event.reply("Removed \"" + removed.getTitle() + "\" from your watchlist.").queue();
             } else {
-                event.reply("Error: Invalid number \"" + mediaNumber + "\".").queue();
+                event.reply("Error: Invalid number \"" + reference + "\".").queue();
             }
         } catch (NumberFormatException e) {
-            event.reply("Error: \"" + mediaNumber + "\" is not a valid number.").queue();
+            event.reply("Error: \"" + reference + "\" is not a valid number.").queue();
         }
     }
 
-    public void editMediaByNumber(String mediaNumber, String newName, String newSource, SlashCommandInteractionEvent event) {
+    public void editMediaByNumber(String key, String reference, String newName, String newSource, SlashCommandInteractionEvent event) {
+        String title = newName != null && !newName.isEmpty() ? newName : null;
+        String source = newSource != null && !newSource.isEmpty() ? newSource : null;
         try {
-            int index = Integer.parseInt(mediaNumber) - 1;
-            if (index >= 0 && index < media.size()) {
-                if (newName != null && !newName.isEmpty()) {
-                    media.set(index, newName);
-                }
-                if (newSource != null && !newSource.isEmpty()) {
-                    source.set(index, newSource);
-                }
-                saveWatchlist();
-                event.reply("Edited media number " + mediaNumber + " in your watchlist.").queue();
+            WatchlistSnapshot.Item edited = reference.startsWith(ENTRY_ID_PREFIX)
+                    ? store.editById(key, Long.parseLong(reference.substring(ENTRY_ID_PREFIX.length())), title, source)
+                    : store.edit(key, Integer.parseInt(reference), title, source);
+            if (edited != null) {
+                event.reply("Edited \"" + edited.getTitle() + "\" in your watchlist.").queue();
             } else {
-                event.reply("Error: Invalid number \"" + mediaNumber + "\".").queue();
+                event.reply("Error: Invalid number \"" + reference + "\".").queue();
             }
         } catch (NumberFormatException e) {
-            event.reply("Error: \"" + mediaNumber + "\" is not a valid number.").queue();
+            event.reply("Error: \"" + reference + "\" is not a valid number.").queue();
         }
     }
 
-    public void clearWatchlist(ButtonInteractionEvent event) {
-        media.clear();
-        source.clear();
-        saveWatchlist();
-        event.reply("The watchlist has been cleared.").queue();
+    /**
+     * Lädt die Datei herunter und importiert sie im Hintergrund; der Fortschritt erscheint in der Antwort.
+     */
+    private void importWatchlist(String key, Message.Attachment attachment, SlashCommandInteractionEvent event) {
+        if (attachment.getSize() > MAX_IMPORT_BYTES) {
+            event.reply("Error: The file is too large (max " + MAX_IMPORT_BYTES / (1024 * 1024) + " MB).").queue();
+            return;
+        }
+        event.deferReply().queue(); // Show loading animation
+        InteractionHook hook = event.getHook();
+        WatchlistTransfer.Format format = WatchlistTransfer.Format.fromFileName(attachment.getFileName());
+        attachment.getProxy().download().thenAcceptAsync(in -> {
+            long[] lastUpdate = {System.currentTimeMillis()};
+            try {
+                WatchlistTransfer.ImportResult result = WatchlistTransfer.importInto(store, key, in, format, imported -> {
+                    long now = System.currentTimeMillis();
+                    if (now - lastUpdate[0] >= PROGRESS_INTERVAL_MILLIS) {
+                        lastUpdate[0] = now;
+                        hook.editOriginal("Importing... " + imported + " shows so far.").queue();
+                    }
+                });
+                hook.editOriginal("Imported " + result.getImported() + " shows into your watchlist"
+                        + (result.getSkipped() > 0 ? " (" + result.getSkipped() + " entries without a title were skipped)." : ".")).queue();
+            } catch (IOException e) {
+                hook.editOriginal("Error: The import stopped early: " + e.getMessage()).queue();
+            }
+        }, bulkExecutor).exceptionally(e -> {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            hook.editOriginal(cause instanceof IOException
+                    ? "Error: Could not download the file: " + cause.getMessage()
+                    : "Error: The import failed: " + cause.getMessage()).queue();
+            return null;
+        });
     }
 
-    public void printWatchlist(SlashCommandInteractionEvent event, int page) {
-        EmbedBuilder embed = new EmbedBuilder();
-        embed.setTitle("Watchlist");
-        embed.setColor(new Color(133, 201, 0));
-        embed.setDescription("Here is your current watchlist:");
-
-        int start = page * 10;
-        int end = Math.min(start + 10, media.size());
-
-        if (media.isEmpty()) {
-            embed.addField("Your watchlist is empty!", "", false);
-        } else {
-            for (int i = start; i < end; i++) {
-                embed.addField((i + 1) + ". " + media.get(i), "Source: " + source.get(i), false);
+    /**
+     * Schreibt den aktuellen Stand in eine temporäre Datei und hängt sie an die Antwort an.
+     */
+    private void exportWatchlist(String key, WatchlistTransfer.Format format, SlashCommandInteractionEvent event) {
+        event.deferReply().queue(); // Show loading animation
+        InteractionHook hook = event.getHook();
+        bulkExecutor.execute(() -> {
+            WatchlistSnapshot snapshot = store.get(key);
+            Path file;
+            try {
+                file = Files.createTempFile("watchlist", "." + format.getExtension());
+                try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    WatchlistTransfer.export(snapshot, format, out);
+                }
+            } catch (IOException e) {
+                hook.editOriginal("Error: Could not export the watchlist.").queue();
+                return;
             }
-        }
+            hook.editOriginal("Exported " + snapshot.size() + " shows.")
+                    .setFiles(FileUpload.fromData(file.toFile(), "watchlist." + format.getExtension()))
+                    .queue(success -> deleteQuietly(file), failure -> {
+                        deleteQuietly(file);
+                        hook.editOriginal("Error: Could not upload the export (the file may be too large).").queue();
+                    });
+        });
+    }
 
-        int totalPages = (int) Math.ceil((double) media.size() / 10);
-        if (totalPages > 1) {
-            embed.setFooter("Page " + (page + 1) + " of " + totalPages);
-            event.getHook().editOriginalEmbeds(embed.build())
-                    .setActionRow(
-                            Button.primary("watchlist:" + (page - 1), "Previous").withDisabled(page == 0),
-                            Button.primary("watchlist:" + (page + 1), "Next").withDisabled(page == totalPages - 1)
-                    ).queue();
-        } else {
-            event.getHook().editOriginalEmbeds(embed.build()).queue();
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
-    public void printWatchlist(ButtonInteractionEvent event, int page) {
-        EmbedBuilder embed = new EmbedBuilder();
-        embed.setTitle("Watchlist");
-        embed.setColor(new Color(133, 201, 0));
-        embed.setDescription("Here is your current watchlist:");
-
-        int start = page * 10;
-        int end = Math.min(start + 10, media.size());
-
-        if (media.isEmpty()) {
-            embed.addField("Your watchlist is empty!", "", false);
-        } else {
-            for (int i = start; i < end; i++) {
-                embed.addField((i + 1) + ". " + media.get(i), "Source: " + source.get(i), false);
-            }
+    /**
+     * Bestimmt die Watchlist: ohne Angabe auf einem Server die Server-Watchlist, sonst die eigene.
+     *
+     * @return Der Schlüssel oder null, wenn "server" außerhalb eines Servers verlangt wird.
+     */
+    private String resolveKey(Interaction interaction, String scope) {
+        boolean personal = "personal".equalsIgnoreCase(scope)
+                || (scope == null && !interaction.isFromGuild());
+        if (personal) {
+            return WatchlistStore.userKey(interaction.getUser().getId());
         }
-
-        int totalPages = (int) Math.ceil((double) media.size() / 10);
-        if (totalPages > 1) {
-            embed.setFooter("Page " + (page + 1) + " of " + totalPages);
-            event.editMessageEmbeds(embed.build())
-                    .setActionRow(
-                            Button.primary("watchlist:" + (page - 1), "Previous").withDisabled(page == 0),
-                            Button.primary("watchlist:" + (page + 1), "Next").withDisabled(page == totalPages - 1)
-                    ).queue();
-        } else {
-            event.editMessageEmbeds(embed.build()).queue();
+        if (!interaction.isFromGuild()) {
+            return null;
         }
+        return WatchlistStore.guildKey(interaction.getGuild().getId());
     }
 
-    private void saveWatchlist() {
-        Map<String, ArrayList<String>> watchlist = new HashMap<>();
-        watchlist.put("media", media);
-        watchlist.put("source", source);
-
-        try (FileWriter writer = new FileWriter(WATCHLIST_FILE)) {
-            new Gson().toJson(watchlist, writer);
-        } catch (IOException e) {
-            e.printStackTrace();
+    private boolean canEdit(Interaction interaction, String key) {
+        if (key.equals(WatchlistStore.userKey(interaction.getUser().getId()))) {
+            return true;
+        }
+        Member member = interaction.getMember();
+        if (member == null || !key.equals(WatchlistStore.guildKey(member.getGuild().getId()))) {
+            return false;
+        }
+        if (member.hasPermission(Permission.MANAGE_SERVER)) {
+            return true;
         }
+        for (Role role : member.getRoles()) {
+            if (editorRoles.contains(role.getId()) || editorRoles.contains(role.getName().toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private void loadWatchlist() {
+    /**
+     * Übernimmt die alte gemeinsame Watchlist als persönliche Watchlist ihres bisherigen Besitzers:
+     * zuerst Einträge unter dem alten Besitzer "global", sonst einmalig die watchlist.json.
+     */
+    private void migrateLegacyWatchlist() {
+        String legacyKey = WatchlistStore.userKey(LEGACY_OWNER_ID);
+        if (repository.reassign(LEGACY_OWNER, legacyKey) > 0) {
+            return;
+        }
+        Path file = Paths.get(WATCHLIST_FILE);
+        if (!Files.exists(file) || repository.count(legacyKey) > 0) {
+            return;
+        }
         try (FileReader reader = new FileReader(WATCHLIST_FILE)) {
             Type type = new TypeToken<Map<String, ArrayList<String>>>() {}.getType();
             Map<String, ArrayList<String>> watchlist = new Gson().fromJson(reader, type);
-            if (watchlist != null) {
-                media = watchlist.get("media");
-                source = watchlist.get("source");
+            if (watchlist != null && watchlist.get("media") != null) {
+                List<String> media = watchlist.get("media");
+                List<String> source = watchlist.get("source");
+                for (int i = 0; i < media.size(); i++) {
+                    repository.add(legacyKey, media.get(i), source != null && i < source.size() ? source.get(i) : "none");
+                }
             }
         } catch (IOException e) {
             e.printStackTrace();
+            return;
+        }
+        try {
+            Files.move(file, Paths.get(WATCHLIST_FILE + ".migrated"), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private Properties loadConfigProperties() {
+        Properties properties = new Properties();
+        try (FileInputStream fis = new FileInputStream("config.properties")) {
+            properties.load(fis);
+        } catch (IOException e) {
+            System.err.println("Fehler beim Laden der config.properties: " + e.getMessage());
         }
+        return properties;
     }
-}
\ No newline at end of file
+}
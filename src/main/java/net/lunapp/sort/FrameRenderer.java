@@ -0,0 +1,94 @@
+package net.lunapp.sort;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Entkoppelt die Schritte einer Animation von ihrer Ausgabe.
+ *
+ * Frames werden mit {@link #submit} abgelegt, wobei nur der jeweils neueste behalten wird. In einem
+ * festen Takt wird dieser an die Ausgabe (z. B. ein Discord-Edit) übergeben, aber nur, wenn die
+ * vorherige Ausgabe bereits abgeschlossen ist. Egal wie viele Schritte ein Algorithmus macht, es
+ * gibt also höchstens einen Request pro Takt und nie mehr als einen gleichzeitig.
+ *
+ * @param <T> Typ eines Frames.
+ */
+public class FrameRenderer<T> {
+
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Frame-Renderer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Function<T, CompletableFuture<?>> sink;
+    private final AtomicReference<T> latest = new AtomicReference<>();
+    private final ScheduledFuture<?> tick;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private volatile boolean closing;
+    private boolean inFlight;
+
+    /**
+     * @param framesPerSecond Maximale Anzahl an Ausgaben pro Sekunde.
+     * @param sink            Gibt einen Frame aus; das Future ist fertig, wenn die Ausgabe abgeschlossen ist.
+     */
+    public FrameRenderer(double framesPerSecond, Function<T, CompletableFuture<?>> sink) {
+        this.sink = sink;
+        long periodMillis = Math.max(1, Math.round(1000 / framesPerSecond));
+        this.tick = SCHEDULER.scheduleAtFixedRate(this::flush, 0, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Legt einen Frame ab und ersetzt einen noch nicht ausgegebenen älteren.
+     */
+    public void submit(T frame) {
+        if (!closing) {
+            latest.set(frame);
+        }
+    }
+
+    /**
+     * Verwirft ausstehende Frames und beendet den Takt.
+     *
+     * @return Fertig, sobald keine Ausgabe mehr läuft; danach kann gefahrlos etwas anderes ausgegeben werden.
+     */
+    public CompletableFuture<Void> cancel() {
+        closing = true;
+        latest.set(null);
+        return done;
+    }
+
+    private synchronized void flush() {
+        if (inFlight) {
+            return;
+        }
+        T frame = latest.getAndSet(null);
+        if (frame == null) {
+            if (closing) {
+                tick.cancel(false);
+                done.complete(null);
+            }
+            return;
+        }
+        inFlight = true;
+        CompletableFuture<?> output;
+        try {
+            output = sink.apply(frame);
+        } catch (RuntimeException e) {
+            output = CompletableFuture.failedFuture(e);
+        }
+        output.whenComplete((result, error) -> {
+            if (error != null) {
+                System.err.println("Fehler bei der Ausgabe eines Frames: " + error.getMessage());
+            }
+            synchronized (this) {
+                inFlight = false;
+            }
+        });
+    }
+}
@@ -0,0 +1,318 @@
+package net.lunapp.sort;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Die Sortieralgorithmen aus /sort auf primitiven int-Arrays.
+ *
+ * Jeder Vergleich, Tausch und Schreibzugriff geht an einen {@link StepRecorder}; die Animation zeichnet
+ * so eine {@link SortTrace} auf, Benchmarks übergeben {@link StepRecorder#NONE}. Abgesehen von den
+ * Hilfsarrays bei Merge-, Counting- und Radixsort wird beim Sortieren nichts angelegt.
+ *
+ * Quicksort arbeitet mit Median-aus-drei und Hoare-Partitionierung und steigt nur in die kleinere
+ * Hälfte rekursiv ab, damit sortierte Eingaben und viele gleiche Werte bei 10^7 Elementen weder
+ * quadratisch werden noch den Stack sprengen.
+ */
+final class IntSorts {
+
+    private IntSorts() {
+    }
+
+    static void shuffle(int[] a, SplittableRandom random, StepRecorder r) {
+        for (int i = a.length - 1; i > 0; i--) {
+            swap(a, i, random.nextInt(i + 1), r);
+        }
+    }
+
+    static void bubbleSort(int[] a, StepRecorder r) {
+        int n = a.length;
+        for (int i = 0; i < n - 1; i++) {
+            for (int j = 0; j < n - i - 1; j++) {
+                r.compare(j, j + 1);
+                if (a[j] > a[j + 1]) {
+                    swap(a, j, j + 1, r);
+                }
+            }
+        }
+    }
+
+    static void insertionSort(int[] a, StepRecorder r) {
+        for (int i = 1; i < a.length; i++) {
+            int key = a[i];
+            int j = i - 1;
+            while (j >= 0) {
+                r.compare(j, i);
+                if (a[j] <= key) {
+                    break;
+                }
+                write(a, j + 1, a[j], r);
+                j--;
+            }
+            write(a, j + 1, key, r);
+        }
+    }
+
+    static void selectionSort(int[] a, StepRecorder r) {
+        int n = a.length;
+        for (int i = 0; i < n - 1; i++) {
+            int minIdx = i;
+            for (int j = i + 1; j < n; j++) {
+                r.compare(j, minIdx);
+                if (a[j] < a[minIdx]) {
+                    minIdx = j;
+                }
+            }
+            swap(a, minIdx, i, r);
+        }
+    }
+
+    static void quickSort(int[] a, StepRecorder r) {
+        quickSort(a, 0, a.length - 1, r);
+    }
+
+    static void quickSort(int[] a, int low, int high, StepRecorder r) {
+        while (low < high) {
+            int p = partition(a, low, high, r);
+            // In die kleinere Hälfte absteigen, die größere in der Schleife weiter bearbeiten
+            if (p - low < high - p) {
+                quickSort(a, low, p, r);
+                low = p + 1;
+            } else {
+                quickSort(a, p + 1, high, r);
+                high = p;
+            }
+        }
+    }
+
+    static int partition(int[] a, int low, int high, StepRecorder r) {
+        int mid = (low + high) >>> 1;
+        r.compare(mid, low);
+        if (a[mid] < a[low]) {
+            swap(a, mid, low, r);
+        }
+        r.compare(high, low);
+        if (a[high] < a[low]) {
+            swap(a, high, low, r);
+        }
+        r.compare(high, mid);
+        if (a[high] < a[mid]) {
+            swap(a, high, mid, r);
+        }
+        int pivot = a[mid];
+        int i = low - 1;
+        int j = high + 1;
+        while (true) {
+            do {
+                i++;
+                r.compare(i, mid);
+            } while (a[i] < pivot);
+            do {
+                j--;
+                r.compare(j, mid);
+            } while (a[j] > pivot);
+            if (i >= j) {
+                return j;
+            }
+            swap(a, i, j, r);
+        }
+    }
+
+    static void heapSort(int[] a, StepRecorder r) {
+        int n = a.length;
+        for (int i = n / 2 - 1; i >= 0; i--) {
+            siftDown(a, n, i, r);
+        }
+        for (int i = n - 1; i > 0; i--) {
+            swap(a, 0, i, r);
+            siftDown(a, i, 0, r);
+        }
+    }
+
+    private static void siftDown(int[] a, int n, int i, StepRecorder r) {
+        while (true) {
+            int largest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < n) {
+                r.compare(left, largest);
+                if (a[left] > a[largest]) {
+                    largest = left;
+                }
+            }
+            if (right < n) {
+                r.compare(right, largest);
+                if (a[right] > a[largest]) {
+                    largest = right;
+                }
+            }
+            if (largest == i) {
+                return;
+            }
+            swap(a, i, largest, r);
+            i = largest;
+        }
+    }
+
+    static void countingSort(int[] a, StepRecorder r) {
+        if (a.length == 0) {
+            return;
+        }
+        int min = a[0];
+        int max = a[0];
+        for (int value : a) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        int[] count = new int[max - min + 1];
+        for (int value : a) {
+            count[value - min]++;
+        }
+        int k = 0;
+        for (int i = 0; i < count.length; i++) {
+            for (int c = count[i]; c > 0; c--) {
+                write(a, k++, i + min, r);
+            }
+        }
+    }
+
+    static void mergeSort(int[] a, StepRecorder r) {
+        int[] buffer = new int[a.length];
+        mergeSort(a, buffer, 0, a.length - 1, r);
+    }
+
+    static void mergeSort(int[] a, int[] buffer, int left, int right, StepRecorder r) {
+        if (left < right) {
+            int mid = (left + right) >>> 1;
+            mergeSort(a, buffer, left, mid, r);
+            mergeSort(a, buffer, mid + 1, right, r);
+            merge(a, buffer, left, mid, right, r);
+        }
+    }
+
+    static void merge(int[] a, int[] buffer, int left, int mid, int right, StepRecorder r) {
+        System.arraycopy(a, left, buffer, left, right - left + 1);
+        int i = left;
+        int j = mid + 1;
+        int k = left;
+        while (i <= mid && j <= right) {
+            r.compare(i, j);
+            write(a, k++, buffer[i] <= buffer[j] ? buffer[i++] : buffer[j++], r);
+        }
+        while (i <= mid) {
+            write(a, k++, buffer[i++], r);
+        }
+        while (j <= right) {
+            write(a, k++, buffer[j++], r);
+        }
+    }
+
+    /**
+     * LSD-Radixsort nach Dezimalstellen wie in der Animation; erwartet nicht-negative Werte.
+     */
+    static void radixSort(int[] a, StepRecorder r) {
+        int max = 0;
+        for (int value : a) {
+            max = Math.max(max, value);
+        }
+        int[] output = new int[a.length];
+        int[] count = new int[10];
+        for (long exp = 1; max / exp > 0; exp *= 10) {
+            Arrays.fill(count, 0);
+            for (int value : a) {
+                count[(int) (value / exp % 10)]++;
+            }
+            for (int i = 1; i < 10; i++) {
+                count[i] += count[i - 1];
+            }
+            for (int i = a.length - 1; i >= 0; i--) {
+                output[--count[(int) (a[i] / exp % 10)]] = a[i];
+            }
+            for (int i = 0; i < a.length; i++) {
+                write(a, i, output[i], r);
+            }
+        }
+    }
+
+    static void shellSort(int[] a, StepRecorder r) {
+        int n = a.length;
+        for (int gap = n / 2; gap > 0; gap /= 2) {
+            for (int i = gap; i < n; i++) {
+                int temp = a[i];
+                int j = i;
+                while (j >= gap) {
+                    r.compare(j - gap, i);
+                    if (a[j - gap] <= temp) {
+                        break;
+                    }
+                    write(a, j, a[j - gap], r);
+                    j -= gap;
+                }
+                write(a, j, temp, r);
+            }
+        }
+    }
+
+    static void cocktailSort(int[] a, StepRecorder r) {
+        boolean swapped = true;
+        int start = 0;
+        int end = a.length - 1;
+        while (swapped) {
+            swapped = false;
+            for (int i = start; i < end; i++) {
+                r.compare(i, i + 1);
+                if (a[i] > a[i + 1]) {
+                    swap(a, i, i + 1, r);
+                    swapped = true;
+                }
+            }
+            if (!swapped) {
+                break;
+            }
+            swapped = false;
+            end--;
+            for (int i = end - 1; i >= start; i--) {
+                r.compare(i, i + 1);
+                if (a[i] > a[i + 1]) {
+                    swap(a, i, i + 1, r);
+                    swapped = true;
+                }
+            }
+            start++;
+        }
+    }
+
+    static void pancakeSort(int[] a, StepRecorder r) {
+        for (int size = a.length; size > 1; size--) {
+            int mi = 0;
+            for (int i = 1; i < size; i++) {
+                r.compare(i, mi);
+                if (a[i] > a[mi]) {
+                    mi = i;
+                }
+            }
+            if (mi != size - 1) {
+                flip(a, mi, r);
+                flip(a, size - 1, r);
+            }
+        }
+    }
+
+    private static void flip(int[] a, int i, StepRecorder r) {
+        for (int start = 0; start < i; start++, i--) {
+            swap(a, start, i, r);
+        }
+    }
+
+    private static void swap(int[] a, int i, int j, StepRecorder r) {
+        int temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+        r.swap(i, j);
+    }
+
+    private static void write(int[] a, int index, int value, StepRecorder r) {
+        a[index] = value;
+        r.write(index, value);
+    }
+}
@@ -0,0 +1,286 @@
+package net.lunapp.sort;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Parallele Varianten von Merge-, Quick- und Radixsort auf einem Fork/Join-Pool.
+ *
+ * Die Arbeit wird so weit aufgeteilt, dass jeder Worker etwa vier Teile bekommt; darunter wird
+ * sequentiell mit {@link IntSorts} weitersortiert. Wird aufgezeichnet, meldet jeder Schritt zusätzlich
+ * seinen Worker, damit die Animation zeigen kann, wer welchen Bereich bearbeitet.
+ */
+final class ParallelIntSorts {
+
+    // Ein Pool pro Worker-Anzahl; untätige Threads beendet der Pool selbst wieder
+    private static final Map<Integer, ForkJoinPool> POOLS = new ConcurrentHashMap<>();
+    private static final int TASKS_PER_WORKER = 4;
+
+    private ParallelIntSorts() {
+    }
+
+    static void mergeSort(int[] a, StepRecorder r, int workers) {
+        int[] buffer = new int[a.length];
+        recorded(r, recorder -> pool(workers).invoke(
+                new MergeTask(a, buffer, 0, a.length - 1, grain(a.length, workers), recorder)));
+    }
+
+    static void quickSort(int[] a, StepRecorder r, int workers) {
+        recorded(r, recorder -> pool(workers).invoke(
+                new QuickTask(a, 0, a.length - 1, grain(a.length, workers), recorder)));
+    }
+
+    /**
+     * LSD-Radixsort nach Dezimalstellen wie {@link IntSorts#radixSort}; erwartet nicht-negative Werte.
+     *
+     * Pro Stelle zählt jeder Teil seine Ziffern selbst, danach bekommt jeder Teil feste Zielbereiche
+     * (Ziffer für Ziffer, innerhalb einer Ziffer in Reihenfolge der Teile). So bleibt das Verteilen stabil
+     * und die Teile schreiben nie an dieselbe Stelle.
+     */
+    static void radixSort(int[] a, StepRecorder r, int workers) {
+        recorded(r, recorder -> radixSort(a, recorder, pool(workers), workers));
+    }
+
+    private static void radixSort(int[] a, StepRecorder recorder, ForkJoinPool pool, int workers) {
+        int n = a.length;
+        int chunks = Math.max(1, Math.min(workers, n));
+        int max = 0;
+        for (int value : a) {
+            max = Math.max(max, value);
+        }
+        int[] output = new int[n];
+        int[][] counts = new int[chunks][10];
+        int[] bounds = new int[chunks + 1];
+        for (int chunk = 0; chunk <= chunks; chunk++) {
+            bounds[chunk] = (int) ((long) n * chunk / chunks);
+        }
+        for (long exp = 1; max / exp > 0; exp *= 10) {
+            long digit = exp;
+            forEachChunk(pool, chunks, chunk -> {
+                int[] count = counts[chunk];
+                Arrays.fill(count, 0);
+                for (int i = bounds[chunk]; i < bounds[chunk + 1]; i++) {
+                    count[(int) (a[i] / digit % 10)]++;
+                }
+            });
+            int offset = 0;
+            for (int d = 0; d < 10; d++) {
+                for (int chunk = 0; chunk < chunks; chunk++) {
+                    int count = counts[chunk][d];
+                    counts[chunk][d] = offset;
+                    offset += count;
+                }
+            }
+            forEachChunk(pool, chunks, chunk -> {
+                int[] next = counts[chunk];
+                for (int i = bounds[chunk]; i < bounds[chunk + 1]; i++) {
+                    output[next[(int) (a[i] / digit % 10)]++] = a[i];
+                }
+            });
+            forEachChunk(pool, chunks, chunk -> {
+                for (int i = bounds[chunk]; i < bounds[chunk + 1]; i++) {
+                    a[i] = output[i];
+                    recorder.write(i, output[i]);
+                }
+            });
+        }
+    }
+
+    private static void forEachChunk(ForkJoinPool pool, int chunks, IntConsumer body) {
+        ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[chunks];
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int index = chunk;
+            tasks[chunk] = ForkJoinTask.adapt(() -> body.accept(index));
+        }
+        pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+    }
+
+    private static ForkJoinPool pool(int workers) {
+        return POOLS.computeIfAbsent(workers, ForkJoinPool::new);
+    }
+
+    /**
+     * @return Bereiche bis zu dieser Größe werden nicht weiter aufgeteilt.
+     */
+    private static int grain(int n, int workers) {
+        return Math.max(2, n / (workers * TASKS_PER_WORKER));
+    }
+
+    /**
+     * Ohne Aufzeichnung läuft das Verfahren mit {@link StepRecorder#NONE}. Sonst schreibt jeder Worker
+     * ohne Sperre in einen eigenen Puffer; erst nach dem Lauf werden die Puffer in der Reihenfolge der
+     * Schritte zusammengeführt und mit Worker-Nummer an r weitergegeben.
+     */
+    private static void recorded(StepRecorder r, Consumer<StepRecorder> run) {
+        if (r == StepRecorder.NONE) {
+            run.accept(r);
+            return;
+        }
+        WorkerRecorder recorder = new WorkerRecorder();
+        run.accept(recorder);
+        recorder.drainTo(r);
+    }
+
+    private static final class MergeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] a;
+        private final int[] buffer;
+        private final int left;
+        private final int right;
+        private final int grain;
+        private final StepRecorder r;
+
+        MergeTask(int[] a, int[] buffer, int left, int right, int grain, StepRecorder r) {
+            this.a = a;
+            this.buffer = buffer;
+            this.left = left;
+            this.right = right;
+            this.grain = grain;
+            this.r = r;
+        }
+
+        @Override
+        protected void compute() {
+            if (right - left + 1 <= grain) {
+                IntSorts.mergeSort(a, buffer, left, right, r);
+                return;
+            }
+            int mid = (left + right) >>> 1;
+            invokeAll(new MergeTask(a, buffer, left, mid, grain, r), new MergeTask(a, buffer, mid + 1, right, grain, r));
+            IntSorts.merge(a, buffer, left, mid, right, r);
+        }
+    }
+
+    private static final class QuickTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int[] a;
+        private final int low;
+        private final int high;
+        private final int grain;
+        private final StepRecorder r;
+
+        QuickTask(int[] a, int low, int high, int grain, StepRecorder r) {
+            this.a = a;
+            this.low = low;
+            this.high = high;
+            this.grain = grain;
+            this.r = r;
+        }
+
+        @Override
+        protected void compute() {
+            if (high - low + 1 <= grain) {
+                IntSorts.quickSort(a, low, high, r);
+                return;
+            }
+            int p = IntSorts.partition(a, low, high, r);
+            invokeAll(new QuickTask(a, low, p, grain, r), new QuickTask(a, p + 1, high, grain, r));
+        }
+    }
+
+    /**
+     * Sammelt die Schritte pro Thread. Eine gemeinsame Sequenznummer hält die Reihenfolge fest, in der
+     * die Schritte tatsächlich passiert sind; sie ist der einzige gemeinsame Zustand beim Aufzeichnen.
+     */
+    private static final class WorkerRecorder implements StepRecorder {
+
+        private static final int COMPARE = 0;
+        private static final int SWAP = 1;
+        private static final int WRITE = 2;
+
+        private final AtomicLong sequence = new AtomicLong();
+        private final Map<Thread, Buffer> buffers = new ConcurrentHashMap<>();
+
+        @Override
+        public void compare(int i, int j) {
+            buffer().append(sequence.getAndIncrement(), COMPARE, i, j);
+        }
+
+        @Override
+        public void swap(int i, int j) {
+            buffer().append(sequence.getAndIncrement(), SWAP, i, j);
+        }
+
+        @Override
+        public void write(int index, int value) {
+            buffer().append(sequence.getAndIncrement(), WRITE, index, value);
+        }
+
+        private Buffer buffer() {
+            Buffer buffer = buffers.get(Thread.currentThread());
+            return buffer != null ? buffer : buffers.computeIfAbsent(Thread.currentThread(), thread -> new Buffer());
+        }
+
+        /**
+         * Führt die Puffer nach Sequenznummer zusammen. Worker werden in der Reihenfolge nummeriert,
+         * in der sie ihren ersten Schritt gemacht haben. Erst aufrufen, wenn alle Worker fertig sind.
+         */
+        void drainTo(StepRecorder target) {
+            List<Buffer> pending = new ArrayList<>(buffers.values());
+            pending.sort(Comparator.comparingLong(buffer -> buffer.sequences[0]));
+            for (int worker = 0; worker < pending.size(); worker++) {
+                pending.get(worker).worker = worker;
+            }
+            pending.removeIf(buffer -> buffer.size == 0);
+            while (!pending.isEmpty()) {
+                Buffer next = pending.get(0);
+                for (Buffer buffer : pending) {
+                    if (buffer.sequences[buffer.read] < next.sequences[next.read]) {
+                        next = buffer;
+                    }
+                }
+                target.worker(next.worker);
+                int at = next.read * 3;
+                int first = next.steps[at + 1];
+                int second = next.steps[at + 2];
+                if (next.steps[at] == COMPARE) {
+                    target.compare(first, second);
+                } else if (next.steps[at] == SWAP) {
+                    target.swap(first, second);
+                } else {
+                    target.write(first, second);
+                }
+                if (++next.read == next.size) {
+                    pending.remove(next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Die Schritte eines Threads: Sequenznummern und je drei ints (Art, erste Position, zweite Position bzw. Wert).
+     */
+    private static final class Buffer {
+        private long[] sequences = new long[64];
+        private int[] steps = new int[64 * 3];
+        private int size;
+        private int read;
+        private int worker;
+
+        void append(long sequence, int type, int first, int second) {
+            if (size == sequences.length) {
+                sequences = Arrays.copyOf(sequences, size * 2);
+                steps = Arrays.copyOf(steps, size * 2 * 3);
+            }
+            sequences[size] = sequence;
+            steps[size * 3] = type;
+            steps[size * 3 + 1] = first;
+            steps[size * 3 + 2] = second;
+            size++;
+        }
+    }
+}
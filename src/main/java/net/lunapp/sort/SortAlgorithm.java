@@ -0,0 +1,137 @@
+package net.lunapp.sort;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Alle Sortieralgorithmen auf int-Arrays, dazu die JDK-Verfahren als Vergleich.
+ */
+public enum SortAlgorithm {
+    BUBBLE("bubblesort", true, IntSorts::bubbleSort),
+    INSERTION("insertionsort", true, IntSorts::insertionSort),
+    SELECTION("selectionsort", true, IntSorts::selectionSort),
+    QUICK("quicksort", false, IntSorts::quickSort),
+    HEAP("heapsort", false, IntSorts::heapSort),
+    COUNTING("countingsort", false, IntSorts::countingSort),
+    MERGE("mergesort", false, IntSorts::mergeSort),
+    RADIX("radixsort", false, IntSorts::radixSort),
+    SHELL("shellsort", false, IntSorts::shellSort),
+    COCKTAIL("cocktailsort", true, IntSorts::cocktailSort),
+    PANCAKE("pancakesort", true, IntSorts::pancakeSort),
+    PARALLEL_MERGE("parallelmergesort", MERGE, ParallelIntSorts::mergeSort),
+    PARALLEL_QUICK("parallelquicksort", QUICK, ParallelIntSorts::quickSort),
+    PARALLEL_RADIX("parallelradixsort", RADIX, ParallelIntSorts::radixSort),
+    // Die JDK-Verfahren melden keine Schritte; sie dienen nur als Vergleich in Benchmarks
+    JDK_SORT("arrays.sort", false, (values, recorder) -> Arrays.sort(values)),
+    JDK_PARALLEL_SORT("arrays.parallelsort", false, (values, recorder) -> Arrays.parallelSort(values));
+
+    /**
+     * Standardanzahl der Worker für parallele Verfahren.
+     */
+    public static final int DEFAULT_WORKERS = Runtime.getRuntime().availableProcessors();
+
+    private final String command;
+    private final boolean quadratic;
+    private final Implementation implementation;
+    private final ParallelImplementation parallelImplementation;
+    private final SortAlgorithm sequential;
+
+    SortAlgorithm(String command, boolean quadratic, Implementation implementation) {
+        this.command = command;
+        this.quadratic = quadratic;
+        this.implementation = implementation;
+        this.parallelImplementation = null;
+        this.sequential = this;
+    }
+
+    SortAlgorithm(String command, SortAlgorithm sequential, ParallelImplementation parallelImplementation) {
+        this.command = command;
+        this.quadratic = sequential.quadratic;
+        this.implementation = null;
+        this.parallelImplementation = parallelImplementation;
+        this.sequential = sequential;
+    }
+
+    /**
+     * Sortiert das Array aufsteigend.
+     */
+    public void sort(int[] values) {
+        sort(values, StepRecorder.NONE, DEFAULT_WORKERS);
+    }
+
+    /**
+     * Sortiert das Array aufsteigend und meldet dabei jeden Schritt.
+     */
+    public void sort(int[] values, StepRecorder recorder) {
+        sort(values, recorder, DEFAULT_WORKERS);
+    }
+
+    /**
+     * Sortiert das Array aufsteigend und meldet dabei jeden Schritt.
+     *
+     * @param workers Anzahl der Worker; nur für parallele Verfahren von Bedeutung.
+     */
+    public void sort(int[] values, StepRecorder recorder, int workers) {
+        if (parallelImplementation != null) {
+            parallelImplementation.sort(values, recorder, workers);
+        } else {
+            implementation.sort(values, recorder);
+        }
+    }
+
+    /**
+     * @return Der Name wie bei /sort algorithm:...
+     */
+    public String getCommand() {
+        return command;
+    }
+
+    /**
+     * @return true für O(n²)-Verfahren, die nur für kleine Eingaben sinnvoll sind.
+     */
+    public boolean isQuadratic() {
+        return quadratic;
+    }
+
+    /**
+     * @return true für die Fork/Join-Verfahren, die eine Worker-Anzahl annehmen.
+     */
+    public boolean isParallel() {
+        return parallelImplementation != null;
+    }
+
+    /**
+     * @return Das sequentielle Gegenstück, bei sequentiellen Verfahren der Algorithmus selbst.
+     */
+    public SortAlgorithm getSequential() {
+        return sequential;
+    }
+
+    /**
+     * @return false für die JDK-Verfahren, die keine Schritte melden und sich daher nicht animieren lassen.
+     */
+    public boolean recordsSteps() {
+        return this != JDK_SORT && this != JDK_PARALLEL_SORT;
+    }
+
+    /**
+     * @return Der Algorithmus zum Namen oder null.
+     */
+    public static SortAlgorithm fromCommand(String command) {
+        String lower = command.toLowerCase(Locale.ROOT);
+        for (SortAlgorithm algorithm : values()) {
+            if (algorithm.command.equals(lower)) {
+                return algorithm;
+            }
+        }
+        return null;
+    }
+
+    private interface Implementation {
+        void sort(int[] values, StepRecorder recorder);
+    }
+
+    private interface ParallelImplementation {
+        void sort(int[] values, StepRecorder recorder, int workers);
+    }
+}
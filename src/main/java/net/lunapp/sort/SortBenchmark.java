@@ -0,0 +1,138 @@
+package net.lunapp.sort;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Kurzer Vergleich aller Algorithmen für /sort benchmark.
+ *
+ * Das ist bewusst nur eine grobe Messung (eine Aufwärmrunde, dann das beste von drei Durchläufen),
+ * damit sie im Bot in wenigen Sekunden fertig ist. Genaue Zahlen über mehr Größen und Verteilungen
+ * liefert das JMH-Projekt im Ordner benchmarks.
+ */
+public final class SortBenchmark {
+
+    public static final int[] SIZES = {1_000, 10_000, 100_000, 1_000_000};
+    // Größer lohnt sich für O(n²)-Verfahren nicht; die Zeile bleibt dann leer
+    private static final int QUADRATIC_MAX_SIZE = 10_000;
+    private static final int RUNS = 3;
+    private static final long SEED = 42;
+    private static final int SPEEDUP_SIZE = 1_000_000;
+    // Schlüssel: "<Verfahren>:<Worker>"; die Maschine ändert sich zur Laufzeit nicht
+    private static final Map<String, String> SPEEDUPS = new ConcurrentHashMap<>();
+    private static final Set<String> REQUESTED = ConcurrentHashMap.newKeySet();
+    // Misst nacheinander auf einem eigenen Thread, nie in einer Sitzung des Sortier-Pools
+    private static final ExecutorService MEASURER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Sort-Speedup");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private SortBenchmark() {
+    }
+
+    /**
+     * Misst alle Algorithmen und gibt eine Tabelle (Millisekunden pro Sortierung) zurück.
+     *
+     * @param input Die Eingabeverteilung.
+     */
+    public static String run(SortInput input) {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format(Locale.ROOT, "%-20s", "ms (" + input.name().toLowerCase(Locale.ROOT) + ")"));
+        for (int size : SIZES) {
+            table.append(String.format(Locale.ROOT, "%10s", formatSize(size)));
+        }
+        table.append('\n');
+
+        int[][] inputs = new int[SIZES.length][];
+        for (int i = 0; i < SIZES.length; i++) {
+            inputs[i] = input.generate(SIZES[i], SEED);
+        }
+        for (SortAlgorithm algorithm : SortAlgorithm.values()) {
+            table.append(String.format(Locale.ROOT, "%-20s", algorithm.getCommand()));
+            for (int i = 0; i < SIZES.length; i++) {
+                if (algorithm.isQuadratic() && SIZES[i] > QUADRATIC_MAX_SIZE) {
+                    table.append(String.format(Locale.ROOT, "%10s", "-"));
+                } else {
+                    table.append(String.format(Locale.ROOT, "%10.2f", measure(algorithm, inputs[i]) / 1e6));
+                }
+            }
+            table.append('\n');
+        }
+        return table.toString();
+    }
+
+    /**
+     * Vergleicht ein paralleles Verfahren mit seinem sequentiellen Gegenstück auf zufälligen Werten.
+     * Gemessen wird pro Verfahren und Worker-Anzahl nur einmal, siehe {@link #requestSpeedup}; wartet
+     * nie auf die Messung.
+     *
+     * @param algorithm Ein paralleles Verfahren.
+     * @param workers   Anzahl der Worker.
+     * @return Eine Zeile wie "Speedup 3.10x with 4 workers ...", oder ein Hinweis, solange noch gemessen wird.
+     */
+    public static String speedup(SortAlgorithm algorithm, int workers) {
+        String line = SPEEDUPS.get(algorithm + ":" + workers);
+        if (line != null) {
+            return line;
+        }
+        requestSpeedup(algorithm, workers);
+        return "Speedup with " + workers + " workers is still being measured, it will show up next time.";
+    }
+
+    /**
+     * Reiht die Messung für {@link #speedup} ein, falls es für Verfahren und Worker-Anzahl noch keine gibt.
+     * Die Messungen laufen nacheinander auf einem eigenen Thread und dauern jeweils einige Sekunden.
+     */
+    public static void requestSpeedup(SortAlgorithm algorithm, int workers) {
+        String key = algorithm + ":" + workers;
+        if (!REQUESTED.add(key)) {
+            return;
+        }
+        MEASURER.execute(() -> {
+            try {
+                SPEEDUPS.putIfAbsent(key, measureSpeedup(algorithm, workers));
+            } catch (RuntimeException e) {
+                REQUESTED.remove(key);
+                System.err.println("Speedup-Messung fehlgeschlagen (" + key + "): " + e.getMessage());
+            }
+        });
+    }
+
+    private static String measureSpeedup(SortAlgorithm algorithm, int workers) {
+        int[] input = SortInput.RANDOM.generate(SPEEDUP_SIZE, SEED);
+        long sequential = measure(algorithm.getSequential(), input, 1);
+        long parallel = measure(algorithm, input, workers);
+        return String.format(Locale.ROOT, "Speedup %.2fx with %d workers on %d cores (%s random values: %.1f ms sequential, %.1f ms parallel)",
+                (double) sequential / parallel, workers, Runtime.getRuntime().availableProcessors(),
+                formatSize(SPEEDUP_SIZE), sequential / 1e6, parallel / 1e6);
+    }
+
+    private static long measure(SortAlgorithm algorithm, int[] input) {
+        return measure(algorithm, input, SortAlgorithm.DEFAULT_WORKERS);
+    }
+
+    /**
+     * @return Beste Laufzeit in Nanosekunden.
+     */
+    private static long measure(SortAlgorithm algorithm, int[] input, int workers) {
+        algorithm.sort(input.clone(), StepRecorder.NONE, workers);
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            int[] values = input.clone();
+            long start = System.nanoTime();
+            algorithm.sort(values, StepRecorder.NONE, workers);
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    private static String formatSize(int size) {
+        return size >= 1_000_000 ? size / 1_000_000 + "M" : size >= 1_000 ? size / 1_000 + "k" : String.valueOf(size);
+    }
+
+}
@@ -0,0 +1,40 @@
+package net.lunapp.sort;
+
+import java.util.SplittableRandom;
+
+/**
+ * Eingabeverteilungen für Benchmarks. Alle Werte sind nicht-negativ und kleiner als die Länge
+ * (bzw. kleiner als 10 bei FEW_UNIQUE), damit auch Counting- und Radixsort sinnvoll laufen.
+ */
+public enum SortInput {
+    RANDOM,
+    SORTED,
+    REVERSED,
+    FEW_UNIQUE;
+
+    /**
+     * @param size Anzahl der Elemente.
+     * @param seed Startwert des Zufallsgenerators; gleiche Werte ergeben gleiche Eingaben.
+     */
+    public int[] generate(int size, long seed) {
+        int[] values = new int[size];
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < size; i++) {
+            switch (this) {
+                case RANDOM:
+                    values[i] = random.nextInt(size);
+                    break;
+                case SORTED:
+                    values[i] = i;
+                    break;
+                case REVERSED:
+                    values[i] = size - 1 - i;
+                    break;
+                default:
+                    values[i] = random.nextInt(10);
+                    break;
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,295 @@
+package net.lunapp.sort;
+
+import net.dv8tion.jda.api.interactions.InteractionHook;
+import net.lunapp.Main;
+import net.lunapp.bus.EventType;
+
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.function.Consumer;
+
+/**
+ * Ein einzelner /sort-Aufruf mit eigenen Daten, eigenem Abbruch-Flag und eigener Ausgabe.
+ *
+ * Sortiert wird zuerst in einem Rutsch auf einem int-Array, wobei die Schritte in einer
+ * {@link SortTrace} landen, zusammengefasst auf so viele Frames, wie die Animation Takte hat.
+ * Die Animation spielt diese Aufzeichnung danach Frame für Frame ab; Vergleiche werden nur gezählt. Bei parallelen
+ * Verfahren bekommt jeder Worker eine eigene Farbe, und am Ende steht der Speedup gegenüber der
+ * sequentiellen Variante (einmal gemessen, siehe {@link SortBenchmark#speedup}). Parallel zur Discord-Nachricht gehen die Schritte als binäre
+ * Deltas ({@link SortStream}) an das Stream-Overlay.
+ *
+ * Jede Sitzung läuft in genau einem Worker-Thread; die Daten werden also nicht mit anderen
+ * Aufrufen geteilt und brauchen keine Synchronisierung.
+ */
+public class SortSession implements Runnable {
+
+    /**
+     * Größere Arrays passen nicht mehr in eine Discord-Nachricht und laufen nur im Overlay.
+     */
+    public static final int MAX_DRAWN_VALUES = 20;
+    // Takt der Wiedergabe; das Overlay bekommt pro Takt ein Delta
+    private static final long TICK_MILLIS = 40;
+    private static final long KEYFRAME_INTERVAL_MILLIS = 1_000;
+    private static final String[] WORKER_COLORS = {"🟥", "🟦", "🟩", "🟨", "🟪", "🟧", "🟫"};
+
+    private final String id;
+    private final String userId;
+    private final String algorithm;
+    private final InteractionHook hook;
+    private final int[] start;
+    private final int workers;
+    private final double framesPerSecond;
+    private final long animationMillis;
+    private final Consumer<SortSession> onFinished;
+    private volatile boolean cancelRequested = false;
+    private volatile int[] current;
+    private FrameRenderer<String> renderer;
+
+    /**
+     * @param id              ID der Interaktion; dient auch als Schlüssel für den Abbrechen-Button.
+     * @param userId          Der Nutzer, der sortieren lässt (und abbrechen darf).
+     * @param algorithm       Name des Algorithmus.
+     * @param hook            Die Antwort, in der die Animation läuft.
+     * @param values          Startwerte; werden kopiert.
+     * @param workers         Anzahl der Worker für parallele Verfahren.
+     * @param framesPerSecond Bildrate der Discord-Ausgabe.
+     * @param animationMillis Höchstdauer der Animation, unabhängig von der Anzahl der Schritte.
+     * @param onFinished      Wird am Ende im Worker-Thread aufgerufen, auch nach Abbruch.
+     */
+    public SortSession(String id, String userId, String algorithm, InteractionHook hook, int[] values, int workers,
+                       double framesPerSecond, long animationMillis, Consumer<SortSession> onFinished) {
+        this.id = id;
+        this.userId = userId;
+        this.algorithm = algorithm;
+        this.hook = hook;
+        this.start = values.clone();
+        this.workers = workers;
+        this.current = start;
+        this.framesPerSecond = framesPerSecond;
+        this.animationMillis = animationMillis;
+        this.onFinished = onFinished;
+    }
+
+    @Override
+    public void run() {
+        try {
+            int[] sorted = start.clone();
+            SortTrace trace = new SortTrace(start, (int) maxTicks());
+            SortAlgorithm sortAlgorithm = SortAlgorithm.fromCommand(algorithm);
+            sort(sortAlgorithm, sorted, trace);
+            String last = replay(trace);
+            if (cancelRequested) {
+                renderer.cancel().thenRun(() -> hook.editOriginal("Sorting canceled.").queue());
+                return;
+            }
+            current = sorted;
+            if (start.length > MAX_DRAWN_VALUES) {
+                last = String.format(Locale.ROOT, "Sorted %d values with %s.\n", start.length, algorithm);
+            }
+            String summary = String.format(Locale.ROOT, "Compares: %d, Swaps: %d, Writes: %d",
+                    trace.getCompares(), trace.getSwaps(), trace.getWrites());
+            if (trace.getWorkerCount() > 1) {
+                summary += "\n" + legend(trace.getWorkerCount());
+            }
+            if (sortAlgorithm != null && sortAlgorithm.isParallel()) {
+                summary += "\n" + SortBenchmark.speedup(sortAlgorithm, workers);
+            }
+            String result = last + summary;
+            // Statt des letzten Frames einmal das Ergebnis mit Zählung und ohne Abbrechen-Button
+            renderer.cancel().thenRun(() -> hook.editOriginal(result).setComponents().queue());
+        } catch (RuntimeException e) {
+            System.err.println("Fehler beim Sortieren (" + algorithm + "): " + e.getMessage());
+            // Sonst bliebe die Antwort auf "denkt nach…" mit einem Abbrechen-Button stehen
+            String message = "Error: Sorting with " + algorithm + " failed.";
+            if (renderer != null) {
+                renderer.cancel().thenRun(() -> hook.editOriginal(message).setComponents().queue());
+            } else {
+                hook.editOriginal(message).setComponents().queue();
+            }
+        } finally {
+            onFinished.accept(this);
+        }
+    }
+
+    private void sort(SortAlgorithm sortAlgorithm, int[] values, SortTrace trace) {
+        if ("shuffle".equalsIgnoreCase(algorithm)) {
+            IntSorts.shuffle(values, new SplittableRandom(), trace);
+            return;
+        }
+        if (!isAnimatable(algorithm)) {
+            // Wird schon in Sorter geprüft, bevor die Sitzung angelegt wird
+            throw new IllegalArgumentException("Unknown algorithm: " + algorithm);
+        }
+        sortAlgorithm.sort(values, trace, workers);
+    }
+
+    /**
+     * @return true, wenn sich der Algorithmus als Animation abspielen lässt ("shuffle" eingeschlossen).
+     */
+    public static boolean isAnimatable(String algorithm) {
+        if ("shuffle".equalsIgnoreCase(algorithm)) {
+            return true;
+        }
+        SortAlgorithm sortAlgorithm = SortAlgorithm.fromCommand(algorithm);
+        return sortAlgorithm != null && sortAlgorithm.recordsSteps();
+    }
+
+    /**
+     * @return Anzahl der Takte einer Animation; so viele Frames hält die Aufzeichnung höchstens.
+     */
+    private long maxTicks() {
+        return Math.max(1, Math.min(Integer.MAX_VALUE, animationMillis / TICK_MILLIS));
+    }
+
+    /**
+     * Spielt die Aufzeichnung in einem festen Takt von {@link #TICK_MILLIS} ab, ein Frame pro Takt. Pro
+     * Takt gehen die geänderten Positionen als Delta an das Overlay und der neue Stand an den Renderer
+     * (nur der neueste wird gezeigt). Da die Aufzeichnung höchstens so viele Frames hat, wie in
+     * animationMillis Takte passen, dauert die Animation nie länger. Gewartet wird nur bis zum nächsten
+     * Takt, sodass auch langsame Verfahren nicht nachhängen.
+     *
+     * @return Der zuletzt gezeigte Stand als Text.
+     */
+    private String replay(SortTrace trace) {
+        renderer = new FrameRenderer<>(framesPerSecond, text -> hook.editOriginal(text).submit());
+        SortTrace.Replay replay = trace.replay(start);
+        SortStream stream = new SortStream();
+        boolean colored = trace.getWorkerCount() > 1;
+        long played = 0;
+        long nextTick = System.nanoTime();
+
+        publish(stream.keyframe(start, replay.getOwners()));
+        long nextKeyframe = System.currentTimeMillis() + KEYFRAME_INTERVAL_MILLIS;
+        String text = start.length <= MAX_DRAWN_VALUES ? render(start, start.length) : progress(0, trace.getFrames());
+        boolean more = true;
+        while (!cancelRequested && more) {
+            more = replay.advance();
+            if (more) {
+                played++;
+                for (int n = 0; n < replay.getChangedCount(); n++) {
+                    int index = replay.getChanged(n);
+                    while (!stream.change(index, replay.getValues()[index], replay.getOwners()[index])) {
+                        publish(stream.delta());
+                    }
+                }
+            }
+            int[] values = replay.getValues().clone();
+            current = values;
+            if (System.currentTimeMillis() >= nextKeyframe) {
+                // Regelmäßig den vollständigen Stand, damit neue oder zurückgefallene Overlays aufholen
+                publish(stream.keyframe(values, replay.getOwners()));
+                nextKeyframe = System.currentTimeMillis() + KEYFRAME_INTERVAL_MILLIS;
+            } else {
+                publish(stream.delta());
+            }
+            if (start.length <= MAX_DRAWN_VALUES) {
+                text = colored ? render(values, replay.getOwners(), start.length) : render(values, start.length);
+            } else {
+                text = progress(played, trace.getFrames());
+            }
+            renderer.submit(text);
+
+            nextTick += TICK_MILLIS * 1_000_000;
+            long wait = nextTick - System.nanoTime();
+            if (more && wait > 0) {
+                try {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    cancelRequested = true;
+                }
+            }
+        }
+        // Zum Schluss der vollständige Stand, damit jedes Overlay sicher beim Ergebnis ankommt
+        publish(stream.keyframe(replay.getValues(), replay.getOwners()));
+        publish(stream.end(cancelRequested));
+        return text;
+    }
+
+    /**
+     * Gibt einen Frame an das Overlay; verworfen statt gewartet, falls der Bus voll ist.
+     */
+    private void publish(byte[] frame) {
+        if (frame != null) {
+            Main.getEventBus().tryPublish(EventType.SORT_FRAME, id, null, null, frame);
+        }
+    }
+
+    private String progress(long played, long total) {
+        return String.format(Locale.ROOT, "Sorting %d values with %s: %d%%\nThe animation runs in the stream overlay.\n",
+                start.length, algorithm, total == 0 ? 100 : played * 100 / total);
+    }
+
+    /**
+     * Bricht nur diese Sitzung ab; die Meldung folgt, sobald keine Ausgabe mehr unterwegs ist.
+     */
+    public void cancel() {
+        cancelRequested = true;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * @return Der zuletzt gezeigte Stand der Daten (nach Abbruch also der Zwischenstand).
+     */
+    public int[] getValues() {
+        return current.clone();
+    }
+
+    /**
+     * Zeichnet die Werte als Balken aus Blockzeichen.
+     *
+     * @param height Anzahl der Zeilen (größter möglicher Wert).
+     */
+    public static String render(int[] values, int height) {
+        StringBuilder visualization = new StringBuilder();
+        for (int j = height; j >= 1; j--) {
+            for (int value : values) {
+                if (value >= j) {
+                    visualization.append("█");
+                } else {
+                    visualization.append("░");
+                }
+            }
+            visualization.append("\n");
+        }
+        return visualization.toString();
+    }
+
+    /**
+     * Zeichnet die Werte als Balken, jede Spalte in der Farbe des Workers, der sie zuletzt verändert hat.
+     *
+     * @param owners Worker pro Position oder -1, wenn die Position noch unberührt ist.
+     * @param height Anzahl der Zeilen (größter möglicher Wert).
+     */
+    public static String render(int[] values, int[] owners, int height) {
+        StringBuilder visualization = new StringBuilder();
+        for (int j = height; j >= 1; j--) {
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] < j) {
+                    visualization.append("⬛");
+                } else if (owners[i] < 0) {
+                    visualization.append("⬜");
+                } else {
+                    visualization.append(WORKER_COLORS[owners[i] % WORKER_COLORS.length]);
+                }
+            }
+            visualization.append("\n");
+        }
+        return visualization.toString();
+    }
+
+    private static String legend(int workerCount) {
+        StringBuilder legend = new StringBuilder("Workers:");
+        for (int worker = 0; worker < workerCount; worker++) {
+            legend.append(' ').append(WORKER_COLORS[worker % WORKER_COLORS.length]).append(' ').append(worker + 1);
+        }
+        return legend.toString();
+    }
+}
@@ -0,0 +1,108 @@
+package net.lunapp.sort;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Kodiert die Animation einer Sitzung als binäre Frames für das Overlay (Topic "sort").
+ *
+ * Ein Keyframe enthält alle Werte, danach folgen nur noch Deltas mit den geänderten Positionen.
+ * Ein Delta kostet pro Änderung 9 Bytes, unabhängig davon, wie groß das Array ist. Alle Zahlen
+ * sind Big Endian:
+ * <pre>
+ * Kopf:     u8 Art, u32 Stream, u32 Frame-Nummer (fortlaufend pro Stream)
+ * KEYFRAME: u32 Länge, Länge x i32 Wert, Länge x u8 Worker
+ * DELTA:    u16 Anzahl, Anzahl x (u32 Position, i32 Wert, u8 Worker)
+ * END:      u8 1 = abgebrochen, 0 = fertig
+ * </pre>
+ * Worker ist 0 für unberührte Positionen, sonst Worker-Nummer + 1. Fehlt einem Client eine
+ * Frame-Nummer (z. B. weil Frames verworfen wurden), wartet er auf den nächsten Keyframe.
+ */
+public final class SortStream {
+
+    public static final byte KEYFRAME = 1;
+    public static final byte DELTA = 2;
+    public static final byte END = 3;
+
+    private static final int HEADER_SIZE = 9;
+    private static final int CHANGE_SIZE = 9;
+    private static final int MAX_CHANGES = 0xFFFF;
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    private final int id = NEXT_ID.incrementAndGet();
+    private int frame;
+    private ByteBuffer pending = ByteBuffer.allocate(64 * CHANGE_SIZE);
+    private int changes;
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @param owners Worker pro Position oder -1 (siehe {@link SortTrace.Replay#getOwners()}).
+     * @return Ein Keyframe; noch nicht gesendete Änderungen sind darin enthalten und werden verworfen.
+     */
+    public byte[] keyframe(int[] values, int[] owners) {
+        clearDelta();
+        ByteBuffer buffer = header(KEYFRAME, 4 + values.length * 5);
+        buffer.putInt(values.length);
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        for (int owner : owners) {
+            buffer.put((byte) (owner + 1));
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Merkt eine Änderung für das nächste Delta vor.
+     *
+     * @return false, wenn das Delta voll ist und erst mit {@link #delta()} abgeholt werden muss.
+     */
+    public boolean change(int index, int value, int owner) {
+        if (changes == MAX_CHANGES) {
+            return false;
+        }
+        if (pending.remaining() < CHANGE_SIZE) {
+            ByteBuffer larger = ByteBuffer.allocate(pending.capacity() * 2);
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        pending.putInt(index).putInt(value).put((byte) (owner + 1));
+        changes++;
+        return true;
+    }
+
+    /**
+     * @return Die vorgemerkten Änderungen als Delta oder null, wenn es keine gibt.
+     */
+    public byte[] delta() {
+        if (changes == 0) {
+            return null;
+        }
+        ByteBuffer buffer = header(DELTA, 2 + pending.position());
+        buffer.putShort((short) changes);
+        buffer.put(pending.array(), 0, pending.position());
+        clearDelta();
+        return buffer.array();
+    }
+
+    /**
+     * @return Das Ende des Streams; das Overlay zeigt den letzten Stand noch kurz an.
+     */
+    public byte[] end(boolean canceled) {
+        clearDelta();
+        return header(END, 1).put((byte) (canceled ? 1 : 0)).array();
+    }
+
+    private ByteBuffer header(byte kind, int bodySize) {
+        return ByteBuffer.allocate(HEADER_SIZE + bodySize).put(kind).putInt(id).putInt(frame++);
+    }
+
+    private void clearDelta() {
+        changes = 0;
+        pending.clear();
+    }
+}
@@ -0,0 +1,271 @@
+package net.lunapp.sort;
+
+import java.util.Arrays;
+
+/**
+ * Zeichnet einen Sortierlauf als höchstens maxFrames Frames auf, so viele, wie die Animation abspielt.
+ *
+ * Ein Frame enthält pro veränderter Position nur den letzten Wert und den Worker, der ihn geschrieben
+ * hat. Zu Beginn ist jeder Tausch und jeder Schreibzugriff ein eigener Frame; ist das Budget voll,
+ * werden je zwei benachbarte Frames zusammengelegt und künftige Frames fassen doppelt so viele Schritte.
+ * Der Speicher wächst damit höchstens mit maxFrames mal Arraylänge, nicht mit der Anzahl der Schritte;
+ * bei O(n²)-Verfahren sind das wenige MB statt einiger zehn. Vergleiche werden nur gezählt.
+ */
+public final class SortTrace implements StepRecorder {
+
+    // Pro Eintrag: Position, Wert, Worker
+    private static final int ENTRY_SIZE = 3;
+
+    private final int maxFrames;
+    // Aktueller Stand während der Aufzeichnung
+    private final int[] values;
+    // Pro Position: Kennung des Frames, in dem sie zuletzt eingetragen wurde, und der Eintrag dort
+    private final int[] stamps;
+    private final int[] slots;
+    private int[] entries = new int[64 * ENTRY_SIZE];
+    private int entryCount;
+    // Ende (exklusiv) jedes abgeschlossenen Frames in entries
+    private int[] frameEnds = new int[16];
+    private int frames;
+    private int openTag = 1;
+    // Schritte pro Frame und Schritte im offenen Frame
+    private long stride = 1;
+    private long openSteps;
+    private long compares;
+    private long swaps;
+    private long writes;
+    private int currentWorker;
+    private int workerCount = 1;
+
+    /**
+     * @param start     Die Werte vor dem Sortieren; werden kopiert.
+     * @param maxFrames Höchstzahl an Frames; weniger als 2 zählt als 2.
+     */
+    public SortTrace(int[] start, int maxFrames) {
+        this.maxFrames = Math.max(2, maxFrames);
+        this.values = start.clone();
+        this.stamps = new int[start.length];
+        this.slots = new int[start.length];
+    }
+
+    @Override
+    public void compare(int i, int j) {
+        compares++;
+    }
+
+    @Override
+    public void swap(int i, int j) {
+        int temp = values[i];
+        values[i] = values[j];
+        values[j] = temp;
+        change(i);
+        change(j);
+        swaps++;
+        stepDone();
+    }
+
+    @Override
+    public void write(int index, int value) {
+        values[index] = value;
+        change(index);
+        writes++;
+        stepDone();
+    }
+
+    @Override
+    public void worker(int worker) {
+        currentWorker = worker;
+        workerCount = Math.max(workerCount, worker + 1);
+    }
+
+    /**
+     * Trägt den aktuellen Wert der Position in den offenen Frame ein; ein älterer Eintrag derselben
+     * Position im selben Frame wird überschrieben.
+     */
+    private void change(int index) {
+        int at;
+        if (stamps[index] == openTag) {
+            at = slots[index];
+        } else {
+            if ((entryCount + 1) * ENTRY_SIZE > entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            at = entryCount++;
+            stamps[index] = openTag;
+            slots[index] = at;
+        }
+        entries[at * ENTRY_SIZE] = index;
+        entries[at * ENTRY_SIZE + 1] = values[index];
+        entries[at * ENTRY_SIZE + 2] = currentWorker;
+    }
+
+    private void stepDone() {
+        if (++openSteps < stride) {
+            return;
+        }
+        closeFrame();
+        if (frames == maxFrames) {
+            mergePairs();
+        }
+    }
+
+    private void closeFrame() {
+        if (frames == frameEnds.length) {
+            frameEnds = Arrays.copyOf(frameEnds, frames * 2);
+        }
+        frameEnds[frames++] = entryCount;
+        openTag++;
+        openSteps = 0;
+    }
+
+    /**
+     * Legt je zwei benachbarte Frames zusammen. Es wird nur nach vorne geschrieben, daher reicht
+     * dasselbe Array.
+     */
+    private void mergePairs() {
+        int merged = 0;
+        int write = 0;
+        int read = 0;
+        for (int frame = 0; frame < frames; frame += 2) {
+            int end = frameEnds[Math.min(frame + 1, frames - 1)];
+            int tag = openTag++;
+            for (; read < end; read++) {
+                int index = entries[read * ENTRY_SIZE];
+                int at;
+                if (stamps[index] == tag) {
+                    at = slots[index];
+                } else {
+                    at = write++;
+                    stamps[index] = tag;
+                    slots[index] = at;
+                    entries[at * ENTRY_SIZE] = index;
+                }
+                entries[at * ENTRY_SIZE + 1] = entries[read * ENTRY_SIZE + 1];
+                entries[at * ENTRY_SIZE + 2] = entries[read * ENTRY_SIZE + 2];
+            }
+            frameEnds[merged++] = write;
+        }
+        frames = merged;
+        entryCount = write;
+        stride *= 2;
+    }
+
+    public long getCompares() {
+        return compares;
+    }
+
+    public long getSwaps() {
+        return swaps;
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    /**
+     * @return Anzahl der Schritte (ohne Worker-Wechsel).
+     */
+    public long size() {
+        return compares + swaps + writes;
+    }
+
+    /**
+     * @return Wie viele Worker Schritte gemeldet haben; 1 bei sequentiellen Verfahren.
+     */
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * @return Anzahl der Schritte, die Werte verändern.
+     */
+    public long getChanges() {
+        return swaps + writes;
+    }
+
+    /**
+     * @return Anzahl der Frames, die {@link Replay#advance} abspielt; höchstens maxFrames.
+     */
+    public int getFrames() {
+        return frames + (openSteps > 0 ? 1 : 0);
+    }
+
+    /**
+     * Schließt die Aufzeichnung ab; danach dürfen keine Schritte mehr kommen.
+     *
+     * @param start Die Werte vor dem Sortieren; werden kopiert.
+     * @return Ein Abspieler, der die Aufzeichnung Frame für Frame auf die Startwerte anwendet.
+     */
+    public Replay replay(int[] start) {
+        if (openSteps > 0) {
+            closeFrame();
+        }
+        return new Replay(start.clone());
+    }
+
+    /**
+     * Spielt eine Aufzeichnung ab. Es wird nur der jeweils aktuelle Stand gehalten, keine Zwischenstände.
+     */
+    public final class Replay {
+
+        private final int[] values;
+        private final int[] owners;
+        private int frame;
+        private int frameStart;
+        private int frameEnd;
+
+        private Replay(int[] values) {
+            this.values = values;
+            this.owners = new int[values.length];
+            Arrays.fill(owners, -1);
+        }
+
+        /**
+         * Wendet den nächsten Frame an.
+         *
+         * @return false, wenn die Aufzeichnung zu Ende ist.
+         */
+        public boolean advance() {
+            if (frame == frames) {
+                return false;
+            }
+            frameStart = frame == 0 ? 0 : frameEnds[frame - 1];
+            frameEnd = frameEnds[frame++];
+            for (int at = frameStart; at < frameEnd; at++) {
+                int index = entries[at * ENTRY_SIZE];
+                values[index] = entries[at * ENTRY_SIZE + 1];
+                owners[index] = entries[at * ENTRY_SIZE + 2];
+            }
+            return true;
+        }
+
+        /**
+         * @return Der aktuelle Stand; wird beim nächsten {@link #advance} weiter verändert.
+         */
+        public int[] getValues() {
+            return values;
+        }
+
+        /**
+         * @return Wie viele Positionen der letzte {@link #advance} verändert hat.
+         */
+        public int getChangedCount() {
+            return frameEnd - frameStart;
+        }
+
+        /**
+         * @param n Kleiner als {@link #getChangedCount()}.
+         * @return Eine vom letzten {@link #advance} veränderte Position.
+         */
+        public int getChanged(int n) {
+            return entries[(frameStart + n) * ENTRY_SIZE];
+        }
+
+        /**
+         * @return Pro Position der Worker, der sie zuletzt verändert hat, oder -1; wird ebenfalls weiter verändert.
+         */
+        public int[] getOwners() {
+            return owners;
+        }
+    }
+}
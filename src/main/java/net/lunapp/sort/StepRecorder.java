@@ -0,0 +1,49 @@
+package net.lunapp.sort;
+
+/**
+ * Empfängt die einzelnen Schritte eines Sortieralgorithmus.
+ *
+ * Die Algorithmen in {@link IntSorts} melden jeden Vergleich, Tausch und Schreibzugriff. Ob daraus
+ * eine Animation, eine Zählung oder gar nichts wird, entscheidet allein der Recorder.
+ */
+public interface StepRecorder {
+
+    /**
+     * Verwirft alle Schritte; damit laufen die Algorithmen praktisch ohne Mehraufwand.
+     */
+    StepRecorder NONE = new StepRecorder() {
+        @Override
+        public void compare(int i, int j) {
+        }
+
+        @Override
+        public void swap(int i, int j) {
+        }
+
+        @Override
+        public void write(int index, int value) {
+        }
+    };
+
+    /**
+     * Zwei Positionen wurden verglichen. Wird ein zwischengespeicherter Wert verglichen (Pivot, Schlüssel
+     * bei Insertionsort), ist j die Position, von der er stammt.
+     */
+    void compare(int i, int j);
+
+    /**
+     * Die Werte an zwei Positionen wurden getauscht.
+     */
+    void swap(int i, int j);
+
+    /**
+     * Ein Wert wurde an eine Position geschrieben.
+     */
+    void write(int index, int value);
+
+    /**
+     * Die folgenden Schritte stammen vom angegebenen Worker (0, 1, ...); nur parallele Verfahren melden das.
+     */
+    default void worker(int worker) {
+    }
+}
@@ -0,0 +1,239 @@
+package net.lunapp.twitch;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Minimaler CBOR-Encoder (RFC 8949) für die Nachrichten des {@link SocketServer}.
+ * Baut die Nachricht in einem wiederverwendeten Puffer pro Thread auf, ohne Zwischenstrings
+ * oder JSON-Text zu erzeugen, und kopiert sie danach genau einmal in den fertigen WebSocket-Frame.
+ *
+ * Der Umschlag einer Nachricht ist eine Map mit Integer-Schlüsseln:
+ * 0 = type, 1 = seq (fehlt bei Nachrichten ohne Sequenznummer), 2 = payload.
+ */
+final class CborEncoder {
+
+    static final int KEY_TYPE = 0;
+    static final int KEY_SEQ = 1;
+    static final int KEY_PAYLOAD = 2;
+
+    private static final int MAJOR_UNSIGNED = 0;
+    private static final int MAJOR_NEGATIVE = 1;
+    private static final int MAJOR_BYTES = 2;
+    private static final int MAJOR_TEXT = 3;
+    private static final int MAJOR_ARRAY = 4;
+    private static final int MAJOR_MAP = 5;
+
+    private static final ThreadLocal<CborEncoder> POOL = ThreadLocal.withInitial(CborEncoder::new);
+
+    private byte[] buffer = new byte[4 * 1024];
+    private int position;
+
+    private CborEncoder() {
+    }
+
+    /**
+     * Kodiert einen Nachrichtenumschlag als unkomprimierten Binär-Frame.
+     *
+     * @param type    Typ/Topic der Nachricht.
+     * @param seq     Sequenznummer oder -1, wenn die Nachricht keine hat.
+     * @param payload Die Nutzdaten.
+     * @return Der Frame wie von {@link WebSocketFrames#encode(int, byte[])}; die CBOR-Bytes folgen
+     *         direkt auf den Frame-Kopf.
+     */
+    static ByteBuffer encodeFrame(String type, long seq, JSONObject payload) {
+        CborEncoder encoder = POOL.get();
+        encoder.position = 0;
+        encoder.writeHeader(MAJOR_MAP, seq >= 0 ? 3 : 2);
+        encoder.writeHeader(MAJOR_UNSIGNED, KEY_TYPE);
+        encoder.writeString(type);
+        if (seq >= 0) {
+            encoder.writeHeader(MAJOR_UNSIGNED, KEY_SEQ);
+            encoder.writeHeader(MAJOR_UNSIGNED, seq);
+        }
+        encoder.writeHeader(MAJOR_UNSIGNED, KEY_PAYLOAD);
+        encoder.writeValue(payload);
+        return WebSocketFrames.encode(WebSocketFrames.OPCODE_BINARY, encoder.buffer, 0, encoder.position);
+    }
+
+    private void writeValue(Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            write(0xF6);
+        } else if (value instanceof Boolean) {
+            write((Boolean) value ? 0xF5 : 0xF4);
+        } else if (value instanceof String) {
+            writeString((String) value);
+        } else if (value instanceof Integer || value instanceof Long
+                || value instanceof Short || value instanceof Byte) {
+            writeInteger(((Number) value).longValue());
+        } else if (value instanceof BigInteger && ((BigInteger) value).bitLength() < 64) {
+            writeInteger(((BigInteger) value).longValue());
+        } else if (value instanceof Number) {
+            writeDouble(value instanceof BigDecimal
+                    ? ((BigDecimal) value).doubleValue()
+                    : ((Number) value).doubleValue());
+        } else if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            writeHeader(MAJOR_MAP, object.length());
+            for (String key : object.keySet()) {
+                writeString(key);
+                writeValue(object.opt(key));
+            }
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            writeHeader(MAJOR_ARRAY, array.length());
+            for (int i = 0; i < array.length(); i++) {
+                writeValue(array.opt(i));
+            }
+        } else if (value instanceof int[]) {
+            int[] array = (int[]) value;
+            writeHeader(MAJOR_ARRAY, array.length);
+            for (int element : array) {
+                writeInteger(element);
+            }
+        } else if (value instanceof byte[]) {
+            byte[] bytes = (byte[]) value;
+            writeHeader(MAJOR_BYTES, bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            writeHeader(MAJOR_MAP, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeString(String.valueOf(entry.getKey()));
+                writeValue(entry.getValue());
+            }
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            writeHeader(MAJOR_ARRAY, collection.size());
+            for (Object element : collection) {
+                writeValue(element);
+            }
+        } else {
+            writeString(value.toString());
+        }
+    }
+
+    private void writeInteger(long value) {
+        if (value >= 0) {
+            writeHeader(MAJOR_UNSIGNED, value);
+        } else {
+            writeHeader(MAJOR_NEGATIVE, -1 - value);
+        }
+    }
+
+    private void writeDouble(double value) {
+        // Ganzzahlige Werte sind als Integer kompakter
+        if (value == Math.rint(value) && Math.abs(value) < 1L << 53) {
+            writeInteger((long) value);
+            return;
+        }
+        float asFloat = (float) value;
+        if (asFloat == value) {
+            ensure(5);
+            buffer[position++] = (byte) 0xFA;
+            putInt(Float.floatToIntBits(asFloat));
+            return;
+        }
+        ensure(9);
+        buffer[position++] = (byte) 0xFB;
+        long bits = Double.doubleToLongBits(value);
+        putInt((int) (bits >>> 32));
+        putInt((int) bits);
+    }
+
+    /**
+     * Schreibt einen String als UTF-8 direkt in den Puffer.
+     */
+    private void writeString(String value) {
+        int length = value.length();
+        int utf8Length = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                utf8Length++;
+            } else if (c < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // Einzelne Surrogate werden wie bei String.getBytes durch '?' ersetzt
+                utf8Length++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+        writeHeader(MAJOR_TEXT, utf8Length);
+        ensure(utf8Length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer[position++] = (byte) '?';
+            } else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+    }
+
+    private void writeHeader(int major, long value) {
+        ensure(9);
+        int type = major << 5;
+        if (value < 24) {
+            buffer[position++] = (byte) (type | value);
+        } else if (value < 0x100) {
+            buffer[position++] = (byte) (type | 24);
+            buffer[position++] = (byte) value;
+        } else if (value < 0x10000) {
+            buffer[position++] = (byte) (type | 25);
+            buffer[position++] = (byte) (value >> 8);
+            buffer[position++] = (byte) value;
+        } else if (value < 0x100000000L) {
+            buffer[position++] = (byte) (type | 26);
+            putInt((int) value);
+        } else {
+            buffer[position++] = (byte) (type | 27);
+            putInt((int) (value >>> 32));
+            putInt((int) value);
+        }
+    }
+
+    private void putInt(int value) {
+        buffer[position++] = (byte) (value >> 24);
+        buffer[position++] = (byte) (value >> 16);
+        buffer[position++] = (byte) (value >> 8);
+        buffer[position++] = (byte) value;
+    }
+
+    private void write(int b) {
+        ensure(1);
+        buffer[position++] = (byte) b;
+    }
+
+    private void ensure(int additional) {
+        if (position + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + additional));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package net.lunapp.twitch;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Zusatzdaten einer Twitch-Chatnachricht auf dem Event-Bus (Payload von CHAT_MESSAGE).
+ */
+public final class ChatMessageInfo {
+
+    private final boolean triggered;
+    private final List<String> emotes;
+
+    public ChatMessageInfo(boolean triggered, List<String> emotes) {
+        this.triggered = triggered;
+        this.emotes = Collections.unmodifiableList(emotes);
+    }
+
+    /**
+     * @return true, wenn die Nachricht ein Trigger-Wort enthielt und an Gemini weitergegeben wurde.
+     */
+    public boolean isTriggered() {
+        return triggered;
+    }
+
+    /**
+     * @return Die Namen aller Emotes der Nachricht, ein Eintrag pro Vorkommen.
+     */
+    public List<String> getEmotes() {
+        return emotes;
+    }
+}
@@ -0,0 +1,147 @@
+package net.lunapp.twitch;
+
+import com.github.twitch4j.chat.events.channel.ChannelMessageEvent;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Schneidet Twitch-Chatnachrichten für den {@link ChatReplayer} mit.
+ *
+ * Format: gzip-komprimierte Textzeilen "&lt;Empfangszeit in ms&gt; &lt;rohe IRC-Zeile inkl. Tags&gt;".
+ * Die rohe Zeile enthält alles, was twitch4j zum Nachbauen des Events braucht. Bei jedem Start
+ * wird ein weiterer gzip-Abschnitt angehängt; {@link GZIPInputStream} liest diese nacheinander.
+ */
+public class ChatRecorder implements Closeable {
+
+    private static final long FLUSH_INTERVAL_MILLIS = 1_000;
+
+    private final BufferedWriter writer;
+    // Leert den Puffer jede Sekunde, auch wenn gerade keine Nachricht kommt
+    private final ScheduledExecutorService flusher;
+    private boolean dirty;
+
+    public ChatRecorder(Path file) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND), true),
+                StandardCharsets.UTF_8));
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ChatRecorder-Flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Schreibt eine Nachricht. Geleert wird nicht im Chat-Thread, sondern einmal pro Sekunde im
+     * Hintergrund; bei einem Absturz fehlt also höchstens die letzte Sekunde.
+     *
+     * @param event Die Chatnachricht.
+     */
+    public void record(ChannelMessageEvent event) {
+        write(System.currentTimeMillis(), event.getMessageEvent().getRawMessage());
+    }
+
+    /**
+     * Schreibt eine rohe IRC-Zeile mit vorgegebenem Zeitstempel, z. B. für synthetische Mitschnitte.
+     */
+    synchronized void write(long timestamp, String rawMessage) {
+        try {
+            writer.write(Long.toString(timestamp));
+            writer.write(' ');
+            writer.write(rawMessage);
+            writer.newLine();
+            dirty = true;
+        } catch (IOException e) {
+            System.err.println("Fehler beim Mitschneiden des Chats: " + e.getMessage());
+        }
+    }
+
+    private synchronized void flush() {
+        if (!dirty) {
+            return;
+        }
+        try {
+            writer.flush();
+            dirty = false;
+        } catch (IOException e) {
+            System.err.println("Fehler beim Mitschneiden des Chats: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        flusher.shutdown();
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("Fehler beim Schließen des Chat-Mitschnitts: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Liest einen Mitschnitt vollständig ein.
+     *
+     * @param file Die Datei.
+     * @return Die Einträge in Aufnahmereihenfolge.
+     */
+    public static List<Entry> read(Path file) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                int space = line.indexOf(' ');
+                if (space <= 0) {
+                    continue;
+                }
+                try {
+                    entries.add(new Entry(Long.parseLong(line.substring(0, space)), line.substring(space + 1)));
+                } catch (NumberFormatException e) {
+                    // Beschädigte Zeile überspringen
+                }
+            }
+        } catch (EOFException e) {
+            // Abgeschnittener letzter Abschnitt (z. B. nach einem Absturz): bisher Gelesenes behalten
+        }
+        return entries;
+    }
+
+    /**
+     * Eine aufgezeichnete Nachricht.
+     */
+    public static class Entry {
+        private final long timestamp;
+        private final String rawMessage;
+
+        Entry(long timestamp, String rawMessage) {
+            this.timestamp = timestamp;
+            this.rawMessage = rawMessage;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public String getRawMessage() {
+            return rawMessage;
+        }
+    }
+}
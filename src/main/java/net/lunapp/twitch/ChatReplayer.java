@@ -0,0 +1,285 @@
+package net.lunapp.twitch;
+
+import com.github.twitch4j.chat.events.channel.ChannelMessageEvent;
+import com.github.twitch4j.chat.events.channel.IRCMessageEvent;
+import com.github.twitch4j.chat.util.MessageParser;
+import com.sun.net.httpserver.HttpServer;
+import net.lunapp.AdmissionController;
+import net.lunapp.Main;
+import net.lunapp.bus.EventType;
+import net.lunapp.commands.Gemini;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spielt einen Chat-Mitschnitt des {@link ChatRecorder} offline durch {@link TwitchBot#handleMessageEvent}
+ * ab, ohne Verbindung zu Twitch oder Gemini: Ausgehende Chatnachrichten landen in einem Stub, Modellaufrufe
+ * gehen an einen lokalen Fake-Endpoint mit einstellbarer Antwortzeit.
+ *
+ * Start: java -cp ... net.lunapp.twitch.ChatReplayer --file raid.log.gz
+ *            [--speed 1|4|max] [--model-delay 800] [--reply-pause 1000] [--drain 30]
+ *            [--generate 5000 --channel frecklesmp4]   (erzeugt vorher einen synthetischen Raid)
+ *
+ * Am Ende werden Antwortlatenz (Erwähnung bis gesendete Antwort), verworfene und mit einer
+ * vorgefertigten Antwort abgewiesene Erwähnungen, abgewiesene KI-Anfragen sowie CPU-Zeit, Heap und
+ * Threads ausgegeben.
+ */
+public class ChatReplayer {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        Path file = Paths.get(options.getOrDefault("file", "chat-recording.log.gz"));
+        String speedOption = options.getOrDefault("speed", "1");
+        double speed = speedOption.equalsIgnoreCase("max") ? 0 : Double.parseDouble(speedOption);
+        long modelDelay = Long.parseLong(options.getOrDefault("model-delay", "800"));
+        int drainSeconds = Integer.parseInt(options.getOrDefault("drain", "30"));
+
+        if (options.containsKey("generate")) {
+            generateRaid(file, Integer.parseInt(options.get("generate")), options.getOrDefault("channel", "frecklesmp4"));
+        }
+
+        // Erst alles einlesen und parsen, damit das Parsen nicht in die Messung eingeht
+        List<ChatRecorder.Entry> entries = ChatRecorder.read(file);
+        List<ChannelMessageEvent> events = new ArrayList<>();
+        List<Long> timestamps = new ArrayList<>();
+        Set<String> recordedChannels = new LinkedHashSet<>();
+        for (ChatRecorder.Entry entry : entries) {
+            IRCMessageEvent irc = MessageParser.parse(entry.getRawMessage());
+            if (irc == null || !"PRIVMSG".equals(irc.getCommandType()) || irc.getChannelName().isEmpty() || irc.getUser() == null) {
+                continue;
+            }
+            events.add(new ChannelMessageEvent(irc.getChannel(), irc, irc.getUser(), irc.getMessage().orElse("")));
+            timestamps.add(entry.getTimestamp());
+            recordedChannels.add(irc.getChannelName().get().toLowerCase(Locale.ROOT));
+        }
+        System.out.println(events.size() + " Nachrichten aus " + recordedChannels + " geladen");
+        if (events.isEmpty()) {
+            return;
+        }
+
+        Properties properties = new Properties();
+        if (Files.exists(Paths.get("config.properties"))) {
+            try (FileInputStream fis = new FileInputStream("config.properties")) {
+                properties.load(fis);
+            }
+        }
+        // Channels aus dem Mitschnitt ergänzen, damit deren Trigger greifen
+        Set<String> channelNames = new LinkedHashSet<>();
+        for (String name : properties.getProperty("twitchChannels", "").split(",")) {
+            if (!name.isBlank()) {
+                channelNames.add(name.trim().toLowerCase(Locale.ROOT));
+            }
+        }
+        channelNames.addAll(recordedChannels);
+        properties.setProperty("twitchChannels", String.join(",", channelNames));
+        properties.remove("twitchRecordFile");
+        if (options.containsKey("reply-pause")) {
+            properties.setProperty("twitchReplyPauseMillis", options.get("reply-pause"));
+        }
+
+        FakeModel model = new FakeModel(modelDelay);
+        AdmissionController admission = new AdmissionController(properties);
+        AtomicLong chatSends = new AtomicLong();
+        TwitchBot bot = new TwitchBot(properties, (channel, text) -> chatSends.incrementAndGet());
+        Main.initHeadless(admission, new Gemini(model.getUrl(), false), bot);
+        Main.getEventBus().subscribe("twitch", EnumSet.of(EventType.MODEL_REPLY), bot::onReplyEvent);
+
+        ResourceSampler sampler = new ResourceSampler();
+        sampler.start();
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        long cpuBefore = processCpuNanos(os);
+
+        long triggers = 0;
+        long firstTimestamp = timestamps.get(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < events.size(); i++) {
+            ChannelMessageEvent event = events.get(i);
+            if (speed > 0) {
+                long due = start + (long) ((timestamps.get(i) - firstTimestamp) * 1_000_000 / speed);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+                }
+            }
+            TwitchChannel channel = bot.getChannels().get(event.getChannel().getName().toLowerCase(Locale.ROOT));
+            if (channel != null && channel.isTriggered(event.getMessage())) {
+                triggers++;
+            }
+            bot.handleMessageEvent(event);
+        }
+        double feedSeconds = (System.nanoTime() - start) / 1e9;
+
+        // Warten, bis jede Erwähnung beantwortet, verworfen oder abgewiesen wurde
+        ReplyStats stats = bot.getReplyStats();
+        long drainDeadline = System.currentTimeMillis() + drainSeconds * 1000L;
+        while (stats.getAnswered() + stats.getDropped() + stats.getShed() < triggers
+                && System.currentTimeMillis() < drainDeadline) {
+            Thread.sleep(100);
+        }
+        double totalSeconds = (System.nanoTime() - start) / 1e9;
+        sampler.running = false;
+
+        long unresolved = Math.max(0, triggers - stats.getAnswered() - stats.getDropped() - stats.getShed());
+        System.out.println("===== Ergebnis =====");
+        System.out.printf("Nachrichten:         %d in %.1f s (%.0f/s, Geschwindigkeit %s)%n",
+                events.size(), feedSeconds, events.size() / feedSeconds, speed > 0 ? speed + "x" : "max");
+        System.out.printf("Erwähnungen:         %d, beantwortet %d, verworfen (Limit) %d, abgewiesen %d, offen nach %d s: %d%n",
+                triggers, stats.getAnswered(), stats.getDropped(), stats.getShed(), drainSeconds, unresolved);
+        System.out.printf("Antwortlatenz p50/p90/p99/max: %d / %d / %d / %d ms%n",
+                stats.percentileMillis(0.50), stats.percentileMillis(0.90), stats.percentileMillis(0.99),
+                stats.getMaxMillis());
+        System.out.printf("Modellaufrufe:       %d, Chatnachrichten gesendet: %d%n",
+                model.requests.get(), chatSends.get());
+        System.out.printf("KI-Anfragen:         zugelassen %d, abgewiesen (Last) %d, abgewiesen (Kontingent) %d, gescheitert %d%n",
+                admission.getAdmitted(), admission.getShed(), admission.getRejectedByQuota(), admission.getFailed());
+        long cpuNanos = processCpuNanos(os) - cpuBefore;
+        System.out.printf("CPU-Zeit:            %.2f s (%.0f %% eines Kerns)%n",
+                cpuNanos / 1e9, cpuNanos / 1e9 / totalSeconds * 100);
+        System.out.printf("Heap (max genutzt):  %.1f MiB, Threads (max): %d%n",
+                sampler.maxHeap / (1024.0 * 1024.0), ManagementFactory.getThreadMXBean().getPeakThreadCount());
+        System.exit(0);
+    }
+
+    private static long processCpuNanos(OperatingSystemMXBean os) {
+        if (os instanceof com.sun.management.OperatingSystemMXBean) {
+            return ((com.sun.management.OperatingSystemMXBean) os).getProcessCpuTime();
+        }
+        return 0;
+    }
+
+    /**
+     * Erzeugt einen synthetischen Raid: ruhiger Chat, dann ein Ansturm mit vielen Erwähnungen.
+     */
+    private static void generateRaid(Path file, int messages, String channel) throws IOException {
+        Files.deleteIfExists(file);
+        Random random = new Random(42);
+        String[] words = {"hype", "pog", "lets", "go", "raid", "hello", "welcome", "gg", "love", "stream"};
+        long timestamp = System.currentTimeMillis();
+        try (ChatRecorder recorder = new ChatRecorder(file)) {
+            for (int i = 0; i < messages; i++) {
+                // Erste 20 %: ein bis zwei Nachrichten pro Sekunde, danach etwa 100 pro Sekunde
+                timestamp += i < messages / 5 ? 500 + random.nextInt(500) : random.nextInt(20);
+                String user = "viewer" + random.nextInt(2_000);
+                StringBuilder text = new StringBuilder();
+                String emotes = "";
+                if (random.nextInt(3) == 0) {
+                    text.append("Kappa ");
+                    emotes = "25:0-4";
+                }
+                for (int w = 0; w < 1 + random.nextInt(6); w++) {
+                    text.append(words[random.nextInt(words.length)]).append(' ');
+                }
+                if (random.nextInt(7) == 0) {
+                    text.append("mitsuki");
+                }
+                recorder.write(timestamp, "@badge-info=;badges=;color=;display-name=" + user + ";emotes=" + emotes
+                        + ";id=" + i + ";mod=0;room-id=1;subscriber=0;tmi-sent-ts=" + timestamp
+                        + ";turbo=0;user-id=" + (1_000 + Math.floorMod(user.hashCode(), 1_000)) + ";user-type= :"
+                        + user + "!" + user + "@" + user + ".tmi.twitch.tv PRIVMSG #" + channel + " :"
+                        + text.toString().trim());
+            }
+        }
+        System.out.println("Synthetischer Raid mit " + messages + " Nachrichten nach " + file + " geschrieben");
+    }
+
+    /**
+     * Lokaler Ersatz für den Gemini-Endpoint. Memory-Control-Anfragen werden sofort mit
+     * "noNewMemory" beantwortet, alle anderen nach der eingestellten Zeit (±25 %).
+     */
+    private static class FakeModel {
+        private final HttpServer server;
+        private final AtomicLong requests = new AtomicLong();
+
+        FakeModel(long delayMillis) throws IOException {
+            server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+            server.setExecutor(Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "FakeModel");
+                thread.setDaemon(true);
+                return thread;
+            }));
+            server.createContext("/", exchange -> {
+                requests.incrementAndGet();
+                String body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                String text;
+                if (body.contains("das Speichern zu kontrollieren")) {
+                    text = "noNewMemory";
+                } else {
+                    long jitter = delayMillis / 4;
+                    long delay = delayMillis + (jitter > 0 ? ThreadLocalRandom.current().nextLong(-jitter, jitter) : 0);
+                    try {
+                        Thread.sleep(Math.max(0, delay));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    text = "Simulierte Antwort von Mitsuki.";
+                }
+                JSONObject response = new JSONObject().put("candidates", new JSONArray().put(new JSONObject()
+                        .put("content", new JSONObject().put("parts", new JSONArray()
+                                .put(new JSONObject().put("text", text))))));
+                byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(bytes);
+                }
+            });
+            server.start();
+        }
+
+        String getUrl() {
+            return "http://localhost:" + server.getAddress().getPort() + "/";
+        }
+    }
+
+    /**
+     * Misst alle 100 ms den genutzten Heap.
+     */
+    private static class ResourceSampler extends Thread {
+        private volatile boolean running = true;
+        private volatile long maxHeap;
+
+        ResourceSampler() {
+            super("ChatReplayer-Sampler");
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                maxHeap = Math.max(maxHeap, ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
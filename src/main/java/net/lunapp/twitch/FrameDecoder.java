@@ -0,0 +1,277 @@
+package net.lunapp.twitch;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Inkrementeller Decoder für Client-zu-Server WebSocket-Frames (RFC 6455).
+ * Entfernt die Maskierung, setzt fragmentierte Nachrichten zusammen und meldet
+ * Steuerframes sowie Protokollfehler an einen {@link Listener}.
+ * Eine Instanz gehört genau einer Verbindung und wird nur von deren I/O-Thread benutzt.
+ */
+class FrameDecoder {
+
+    static final int CLOSE_NORMAL = 1000;
+    static final int CLOSE_GOING_AWAY = 1001;
+    static final int CLOSE_PROTOCOL_ERROR = 1002;
+    static final int CLOSE_INVALID_PAYLOAD = 1007;
+    static final int CLOSE_POLICY_VIOLATION = 1008;
+    static final int CLOSE_TOO_BIG = 1009;
+
+    /**
+     * Empfänger der dekodierten Nachrichten und Steuerframes.
+     */
+    interface Listener {
+        void onText(String message);
+
+        void onBinary(byte[] message);
+
+        void onPing(byte[] payload);
+
+        void onPong(byte[] payload);
+
+        void onClose(int code, String reason);
+
+        void onProtocolError(int code, String reason);
+    }
+
+    private final int maxMessageSize;
+    private final Listener listener;
+    private final CharsetDecoder utf8 = StandardCharsets.UTF_8.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPORT)
+            .onUnmappableCharacter(CodingErrorAction.REPORT);
+
+    // Unvollständiger Frame aus vorherigen Lesevorgängen (Schreibmodus)
+    private ByteBuffer pending = ByteBuffer.allocate(0);
+    // Zustand einer fragmentierten Nachricht
+    private int fragmentOpcode = -1;
+    private boolean fragmentCompressed;
+    private final ByteArrayOutputStream fragments = new ByteArrayOutputStream();
+    private boolean stopped;
+    // Gesetzt, sobald permessage-deflate vereinbart wurde
+    private Inflater inflater;
+
+    FrameDecoder(int maxMessageSize, Listener listener) {
+        this.maxMessageSize = maxMessageSize;
+        this.listener = listener;
+    }
+
+    /**
+     * Erlaubt ab sofort komprimierte Nachrichten (RSV1) gemäß permessage-deflate.
+     *
+     * @param inflater Inflater im nowrap-Modus, der zwischen Nachrichten zurückgesetzt werden darf.
+     */
+    void enableDeflate(Inflater inflater) {
+        this.inflater = inflater;
+    }
+
+    /**
+     * Verarbeitet neu empfangene Bytes. Der übergebene Puffer wird vollständig konsumiert;
+     * ein angefangener Frame wird intern zwischengespeichert.
+     *
+     * @param data Puffer im Lesemodus.
+     */
+    void feed(ByteBuffer data) {
+        if (stopped) {
+            data.position(data.limit());
+            return;
+        }
+        if (pending.position() == 0) {
+            // Schneller Weg: direkt aus dem (geteilten) Lesepuffer dekodieren
+            decodeFrames(data);
+            if (data.hasRemaining() && !stopped) {
+                ensurePendingCapacity(data.remaining());
+                pending.put(data);
+            }
+            data.position(data.limit());
+            return;
+        }
+        ensurePendingCapacity(data.remaining());
+        pending.put(data);
+        pending.flip();
+        decodeFrames(pending);
+        pending.compact();
+    }
+
+    private void ensurePendingCapacity(int additional) {
+        if (pending.remaining() >= additional) {
+            return;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + additional));
+        pending.flip();
+        bigger.put(pending);
+        pending = bigger;
+    }
+
+    /**
+     * Dekodiert alle vollständigen Frames im Puffer. Die Position steht danach am Anfang
+     * des ersten unvollständigen Frames.
+     */
+    private void decodeFrames(ByteBuffer buffer) {
+        while (!stopped && buffer.remaining() >= 2) {
+            int start = buffer.position();
+            int b0 = buffer.get(start) & 0xFF;
+            int b1 = buffer.get(start + 1) & 0xFF;
+            boolean fin = (b0 & 0x80) != 0;
+            boolean rsv1 = (b0 & 0x40) != 0;
+            int rsv = b0 & 0x30;
+            int opcode = b0 & 0x0F;
+            boolean masked = (b1 & 0x80) != 0;
+            long length = b1 & 0x7F;
+            int headerLength = 2;
+
+            if (length == 126) {
+                if (buffer.remaining() < 4) {
+                    return;
+                }
+                length = buffer.getShort(start + 2) & 0xFFFF;
+                headerLength = 4;
+            } else if (length == 127) {
+                if (buffer.remaining() < 10) {
+                    return;
+                }
+                length = buffer.getLong(start + 2);
+                headerLength = 10;
+            }
+
+            // RSV1 kennzeichnet bei permessage-deflate die erste Frame einer komprimierten Nachricht
+            if (rsv != 0 || (rsv1 && (inflater == null || opcode == WebSocketFrames.OPCODE_CONTINUATION
+                    || (opcode & 0x08) != 0))) {
+                fail(CLOSE_PROTOCOL_ERROR, "RSV-Bits ohne Erweiterung gesetzt");
+                return;
+            }
+            if (!masked) {
+                fail(CLOSE_PROTOCOL_ERROR, "Client-Frames müssen maskiert sein");
+                return;
+            }
+            boolean control = (opcode & 0x08) != 0;
+            if (control && (!fin || length > 125)) {
+                fail(CLOSE_PROTOCOL_ERROR, "Ungültiger Steuerframe");
+                return;
+            }
+            if (length < 0 || length > maxMessageSize) {
+                fail(CLOSE_TOO_BIG, "Frame zu groß");
+                return;
+            }
+
+            int total = headerLength + 4 + (int) length;
+            if (buffer.remaining() < total) {
+                return;
+            }
+
+            // Maskierungsschlüssel lesen und Payload demaskieren
+            int maskOffset = start + headerLength;
+            byte[] payload = new byte[(int) length];
+            for (int i = 0; i < payload.length; i++) {
+                payload[i] = (byte) (buffer.get(maskOffset + 4 + i) ^ buffer.get(maskOffset + (i & 3)));
+            }
+            buffer.position(start + total);
+
+            handleFrame(fin, rsv1, opcode, payload);
+        }
+    }
+
+    private void handleFrame(boolean fin, boolean compressed, int opcode, byte[] payload) {
+        switch (opcode) {
+            case WebSocketFrames.OPCODE_PING:
+                listener.onPing(payload);
+                return;
+            case WebSocketFrames.OPCODE_PONG:
+                listener.onPong(payload);
+                return;
+            case WebSocketFrames.OPCODE_CLOSE:
+                handleClose(payload);
+                return;
+            case WebSocketFrames.OPCODE_TEXT:
+            case WebSocketFrames.OPCODE_BINARY:
+                if (fragmentOpcode != -1) {
+                    fail(CLOSE_PROTOCOL_ERROR, "Neue Nachricht während einer fragmentierten Nachricht");
+                    return;
+                }
+                if (fin) {
+                    deliver(opcode, compressed, payload);
+                } else {
+                    fragmentOpcode = opcode;
+                    fragmentCompressed = compressed;
+                    fragments.reset();
+                    fragments.writeBytes(payload);
+                }
+                return;
+            case WebSocketFrames.OPCODE_CONTINUATION:
+                if (fragmentOpcode == -1) {
+                    fail(CLOSE_PROTOCOL_ERROR, "Fortsetzungsframe ohne Anfang");
+                    return;
+                }
+                if (fragments.size() + payload.length > maxMessageSize) {
+                    fail(CLOSE_TOO_BIG, "Nachricht zu groß");
+                    return;
+                }
+                fragments.writeBytes(payload);
+                if (fin) {
+                    int completedOpcode = fragmentOpcode;
+                    fragmentOpcode = -1;
+                    byte[] message = fragments.toByteArray();
+                    fragments.reset();
+                    deliver(completedOpcode, fragmentCompressed, message);
+                }
+                return;
+            default:
+                fail(CLOSE_PROTOCOL_ERROR, "Unbekannter Opcode " + opcode);
+        }
+    }
+
+    private void deliver(int opcode, boolean compressed, byte[] message) {
+        if (compressed) {
+            try {
+                message = PerMessageDeflate.inflate(inflater, message, maxMessageSize);
+            } catch (DataFormatException e) {
+                fail(CLOSE_INVALID_PAYLOAD, "Ungültige komprimierte Daten");
+                return;
+            }
+            if (message == null) {
+                fail(CLOSE_TOO_BIG, "Nachricht zu groß");
+                return;
+            }
+        }
+        if (opcode == WebSocketFrames.OPCODE_BINARY) {
+            listener.onBinary(message);
+            return;
+        }
+        try {
+            listener.onText(utf8.decode(ByteBuffer.wrap(message)).toString());
+        } catch (CharacterCodingException e) {
+            fail(CLOSE_INVALID_PAYLOAD, "Ungültiges UTF-8");
+        }
+    }
+
+    private void handleClose(byte[] payload) {
+        if (payload.length == 1) {
+            fail(CLOSE_PROTOCOL_ERROR, "Ungültiger Close-Frame");
+            return;
+        }
+        int code = CLOSE_NORMAL;
+        String reason = "";
+        if (payload.length >= 2) {
+            code = ((payload[0] & 0xFF) << 8) | (payload[1] & 0xFF);
+            try {
+                reason = utf8.decode(ByteBuffer.wrap(payload, 2, payload.length - 2)).toString();
+            } catch (CharacterCodingException e) {
+                fail(CLOSE_INVALID_PAYLOAD, "Ungültiges UTF-8");
+                return;
+            }
+        }
+        stopped = true;
+        listener.onClose(code, reason);
+    }
+
+    private void fail(int code, String reason) {
+        stopped = true;
+        listener.onProtocolError(code, reason);
+    }
+}
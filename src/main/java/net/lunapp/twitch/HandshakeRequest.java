@@ -0,0 +1,123 @@
+package net.lunapp.twitch;
+
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Geparster HTTP-Upgrade-Request eines WebSocket-Clients.
+ * Die Header werden direkt aus dem Lesepuffer gelesen, und zwar nur bis zur Leerzeile,
+ * damit nachfolgende Frame-Bytes nicht verloren gehen.
+ */
+class HandshakeRequest {
+
+    private final String method;
+    private final String path;
+    private final Map<String, String> headers;
+
+    private HandshakeRequest(String method, String path, Map<String, String> headers) {
+        this.method = method;
+        this.path = path;
+        this.headers = headers;
+    }
+
+    /**
+     * Sucht das Ende des Header-Blocks ("\r\n\r\n") im Puffer.
+     *
+     * @param buffer Puffer im Lesemodus (position..limit enthält die empfangenen Bytes).
+     * @return Index direkt nach der Leerzeile oder -1, falls der Header noch unvollständig ist.
+     */
+    static int findHeaderEnd(ByteBuffer buffer) {
+        for (int i = buffer.position(); i + 3 < buffer.limit(); i++) {
+            if (buffer.get(i) == '\r' && buffer.get(i + 1) == '\n'
+                    && buffer.get(i + 2) == '\r' && buffer.get(i + 3) == '\n') {
+                return i + 4;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parst den Header-Block von position bis headerEnd und setzt die Position des Puffers dahinter.
+     *
+     * @param buffer    Puffer im Lesemodus.
+     * @param headerEnd Rückgabewert von {@link #findHeaderEnd(ByteBuffer)}.
+     * @return Der geparste Request oder null, falls die Request-Zeile ungültig ist.
+     */
+    static HandshakeRequest parse(ByteBuffer buffer, int headerEnd) {
+        byte[] raw = new byte[headerEnd - buffer.position()];
+        buffer.get(raw);
+        String[] lines = new String(raw, StandardCharsets.ISO_8859_1).split("\r\n");
+        if (lines.length == 0) {
+            return null;
+        }
+
+        // Die erste Zeile enthält z. B. "GET / HTTP/1.1". Danach folgen die Header.
+        String[] requestLine = lines[0].split(" ");
+        if (requestLine.length < 3) {
+            return null;
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        for (int i = 1; i < lines.length; i++) {
+            int colon = lines[i].indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = lines[i].substring(0, colon).trim().toLowerCase(Locale.ROOT);
+            String value = lines[i].substring(colon + 1).trim();
+            // Mehrfach gesendete Header werden wie in HTTP üblich mit Komma zusammengefasst
+            headers.merge(name, value, (a, b) -> a + ", " + b);
+        }
+        return new HandshakeRequest(requestLine[0], requestLine[1], Collections.unmodifiableMap(headers));
+    }
+
+    /**
+     * Prüft, ob es sich um einen gültigen WebSocket-Upgrade-Request handelt.
+     *
+     * @return true, wenn Methode, Upgrade-Header und Key vorhanden sind.
+     */
+    boolean isWebSocketUpgrade() {
+        String upgrade = header("upgrade");
+        return "GET".equals(method)
+                && upgrade != null && upgrade.equalsIgnoreCase("websocket")
+                && header("sec-websocket-key") != null;
+    }
+
+    String header(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Liest einen Query-Parameter aus dem Request-Pfad, z. B. "topics" aus "/?topics=chat,status".
+     *
+     * @param name Der Name des Parameters.
+     * @return Der URL-dekodierte Wert oder null, falls der Parameter fehlt.
+     */
+    String queryParameter(String name) {
+        int query = path.indexOf('?');
+        if (query == -1) {
+            return null;
+        }
+        for (String pair : path.substring(query + 1).split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq == -1 ? pair : pair.substring(0, eq);
+            if (key.equals(name)) {
+                return eq == -1 ? "" : URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getPath() {
+        return path;
+    }
+}
@@ -0,0 +1,123 @@
+package net.lunapp.twitch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Sammelt Erwähnungen des Bots pro Channel und gibt sie gebündelt weiter, damit bei vielen
+ * gleichzeitigen Erwähnungen nur ein einziger Gemini-Aufruf entsteht.
+ *
+ * Das Fenster passt sich an: Kommt eine Erwähnung nach einer ruhigen Phase, wird sie sofort
+ * weitergegeben. Folgen weitere Erwähnungen innerhalb der maximalen Wartezeit, werden sie gesammelt,
+ * bis entweder die maximale Stapelgröße erreicht oder die Wartezeit abgelaufen ist.
+ */
+class MentionBatcher {
+
+    private final ScheduledExecutorService scheduler;
+    private final BiConsumer<TwitchChannel, List<Mention>> sink;
+    private final Map<String, Batch> batches = new ConcurrentHashMap<>();
+
+    /**
+     * @param scheduler Gemeinsamer Scheduler für die Fenster aller Channels.
+     * @param sink      Empfängt jeden fertigen Stapel; wird im Scheduler- bzw. Aufrufer-Thread aufgerufen.
+     */
+    MentionBatcher(ScheduledExecutorService scheduler, BiConsumer<TwitchChannel, List<Mention>> sink) {
+        this.scheduler = scheduler;
+        this.sink = sink;
+    }
+
+    /**
+     * Nimmt eine Erwähnung entgegen.
+     *
+     * @param channel Der Channel.
+     * @param user    Der Absender.
+     * @param message Die Chatnachricht.
+     */
+    void add(TwitchChannel channel, String user, String message) {
+        Batch batch = batches.computeIfAbsent(channel.getName(), name -> new Batch(channel));
+        List<Mention> ready = null;
+        long now = System.currentTimeMillis();
+        synchronized (batch) {
+            boolean quiet = now - batch.lastMention > channel.getBatchMaxWaitMillis();
+            batch.lastMention = now;
+            batch.pending.add(new Mention(user, message, System.nanoTime()));
+            if (quiet || batch.pending.size() >= channel.getBatchMaxSize()) {
+                ready = batch.drain();
+            } else if (batch.timer == null) {
+                batch.timer = scheduler.schedule(() -> flush(batch),
+                        channel.getBatchMaxWaitMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+        if (ready != null) {
+            sink.accept(channel, ready);
+        }
+    }
+
+    private void flush(Batch batch) {
+        List<Mention> ready;
+        synchronized (batch) {
+            batch.timer = null;
+            ready = batch.drain();
+        }
+        if (!ready.isEmpty()) {
+            sink.accept(batch.channel, ready);
+        }
+    }
+
+    private static class Batch {
+        private final TwitchChannel channel;
+        private List<Mention> pending = new ArrayList<>();
+        private ScheduledFuture<?> timer;
+        private long lastMention;
+
+        Batch(TwitchChannel channel) {
+            this.channel = channel;
+        }
+
+        List<Mention> drain() {
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+            List<Mention> ready = pending;
+            pending = new ArrayList<>();
+            return ready;
+        }
+    }
+
+    /**
+     * Eine einzelne Erwähnung im Chat.
+     */
+    static class Mention {
+        private final String user;
+        private final String message;
+        private final long receivedAt;
+
+        Mention(String user, String message, long receivedAt) {
+            this.user = user;
+            this.message = message;
+            this.receivedAt = receivedAt;
+        }
+
+        String getUser() {
+            return user;
+        }
+
+        String getMessage() {
+            return message;
+        }
+
+        /**
+         * @return Empfangszeitpunkt (System.nanoTime).
+         */
+        long getReceivedAt() {
+            return receivedAt;
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package net.lunapp.twitch;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Unterstützung für die WebSocket-Erweiterung "permessage-deflate" (RFC 7692).
+ *
+ * Der Server komprimiert Broadcasts genau einmal und teilt den Frame mit allen Clients.
+ * Das funktioniert nur ohne Kontextübernahme, deshalb wird immer
+ * "server_no_context_takeover" vereinbart. Da Javas Deflater stets mit 15 Fensterbits arbeitet,
+ * werden Angebote mit kleinerem "server_max_window_bits" abgelehnt. Damit gibt es genau eine
+ * Parameter-Variante und pro Broadcast höchstens einen komprimierten Frame.
+ * Zusätzlich wird "client_no_context_takeover" verlangt, damit eingehende Nachrichten mit einem
+ * Inflater pro I/O-Thread statt einem pro Verbindung entpackt werden können.
+ */
+final class PerMessageDeflate {
+
+    static final String EXTENSION_NAME = "permessage-deflate";
+    static final String RESPONSE = EXTENSION_NAME + "; server_no_context_takeover; client_no_context_takeover";
+
+    // Jeder komprimierte Block endet nach SYNC_FLUSH mit diesen Bytes; sie werden laut RFC 7692 weggelassen.
+    private static final byte[] TAIL = {0x00, 0x00, (byte) 0xFF, (byte) 0xFF};
+
+    private static final ThreadLocal<Deflater> DEFLATER =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[8 * 1024]);
+
+    private PerMessageDeflate() {
+    }
+
+    /**
+     * Prüft den Header "Sec-WebSocket-Extensions" auf ein annehmbares permessage-deflate-Angebot.
+     *
+     * @param extensionsHeader Der Headerwert oder null.
+     * @return true, wenn permessage-deflate mit den Serverparametern vereinbart werden kann.
+     */
+    static boolean accepts(String extensionsHeader) {
+        if (extensionsHeader == null) {
+            return false;
+        }
+        // Angebote sind durch Komma getrennt, Parameter eines Angebots durch Semikolon
+        for (String offer : extensionsHeader.split(",")) {
+            String[] params = offer.split(";");
+            if (!params[0].trim().equalsIgnoreCase(EXTENSION_NAME)) {
+                continue;
+            }
+            if (isAcceptable(params)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isAcceptable(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            int eq = param.indexOf('=');
+            String name = (eq == -1 ? param : param.substring(0, eq)).trim().toLowerCase();
+            String value = eq == -1 ? null : param.substring(eq + 1).trim().replace("\"", "");
+            switch (name) {
+                case "server_no_context_takeover":
+                case "client_no_context_takeover":
+                case "client_max_window_bits":
+                    break;
+                case "server_max_window_bits":
+                    // Der Deflater kann das Fenster nicht verkleinern
+                    if (value == null || !value.equals("15")) {
+                        return false;
+                    }
+                    break;
+                default:
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Komprimiert eine Nachricht ohne Kontextübernahme.
+     *
+     * @param payload Die unkomprimierte Nachricht.
+     * @return Die komprimierten Bytes ohne abschließendes 00 00 FF FF, oder null,
+     *         wenn die Kompression nichts einspart.
+     */
+    static byte[] deflate(byte[] payload) {
+        return deflate(ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Wie {@link #deflate(byte[])}, liest aber die verbleibenden Bytes des Puffers, ohne dessen Position zu ändern.
+     * So kann direkt der Nutzdatenbereich eines fertigen Frames komprimiert werden.
+     */
+    static byte[] deflate(ByteBuffer payload) {
+        int payloadLength = payload.remaining();
+        Deflater deflater = DEFLATER.get();
+        byte[] buffer = BUFFER.get();
+        deflater.reset();
+        deflater.setInput(payload.duplicate());
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payloadLength / 2 + 16);
+        int n;
+        do {
+            n = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+            out.write(buffer, 0, n);
+        } while (n == buffer.length || !deflater.needsInput());
+
+        byte[] compressed = out.toByteArray();
+        int length = compressed.length - TAIL.length;
+        if (length <= 0 || length >= payloadLength) {
+            return null;
+        }
+        byte[] result = new byte[length];
+        System.arraycopy(compressed, 0, result, 0, length);
+        return result;
+    }
+
+    /**
+     * Entpackt eine komprimierte Client-Nachricht.
+     *
+     * @param inflater Ein Inflater im nowrap-Modus; wird zurückgesetzt.
+     * @param data     Die komprimierten Bytes (ohne 00 00 FF FF).
+     * @param maxSize  Maximale Größe der entpackten Nachricht.
+     * @return Die entpackte Nachricht oder null, wenn sie maxSize überschreitet.
+     * @throws DataFormatException wenn die Daten kein gültiger Deflate-Strom sind.
+     */
+    static byte[] inflate(Inflater inflater, byte[] data, int maxSize) throws DataFormatException {
+        inflater.reset();
+        byte[] input = new byte[data.length + TAIL.length];
+        System.arraycopy(data, 0, input, 0, data.length);
+        System.arraycopy(TAIL, 0, input, data.length, TAIL.length);
+        inflater.setInput(input);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 2);
+        byte[] buffer = BUFFER.get();
+        while (!inflater.needsInput() && !inflater.finished()) {
+            int n = inflater.inflate(buffer);
+            if (n == 0 && (inflater.needsDictionary() || inflater.needsInput())) {
+                break;
+            }
+            out.write(buffer, 0, n);
+            if (out.size() > maxSize) {
+                return null;
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,90 @@
+package net.lunapp.twitch;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Ringpuffer der zuletzt gesendeten Broadcasts mit fortlaufender Sequenznummer.
+ * Zusätzlich wird pro Topic die jeweils letzte Nachricht gehalten, um Clients,
+ * die zu weit zurückliegen, einen kompakten Snapshot schicken zu können.
+ *
+ * Nicht threadsicher; der Aufrufer muss synchronisieren.
+ *
+ * @param <T> Typ der gespeicherten (bereits kodierten) Nachricht.
+ */
+class ReplayBuffer<T> {
+
+    private final long[] seqs;
+    private final String[] topics;
+    private final Object[] entries;
+    private final Map<String, T> latestPerTopic = new HashMap<>();
+    private final Map<String, Long> latestSeqPerTopic = new HashMap<>();
+    private long lastSeq;
+
+    ReplayBuffer(int capacity) {
+        seqs = new long[capacity];
+        topics = new String[capacity];
+        entries = new Object[capacity];
+    }
+
+    /**
+     * Vergibt die nächste Sequenznummer.
+     */
+    long nextSeq() {
+        return lastSeq + 1;
+    }
+
+    /**
+     * Speichert eine Nachricht; die Sequenznummer muss {@link #nextSeq()} entsprechen.
+     */
+    void append(long seq, String topic, T entry) {
+        int slot = (int) (seq % entries.length);
+        seqs[slot] = seq;
+        topics[slot] = topic;
+        entries[slot] = entry;
+        latestPerTopic.put(topic, entry);
+        latestSeqPerTopic.put(topic, seq);
+        lastSeq = seq;
+    }
+
+    long lastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * @return Die älteste noch gespeicherte Sequenznummer (bzw. lastSeq + 1, wenn leer).
+     */
+    long oldestSeq() {
+        return Math.max(1, lastSeq - entries.length + 1);
+    }
+
+    /**
+     * Prüft, ob alle Nachrichten nach afterSeq noch im Puffer liegen.
+     */
+    boolean canReplayFrom(long afterSeq) {
+        return afterSeq >= oldestSeq() - 1 && afterSeq <= lastSeq;
+    }
+
+    /**
+     * Ruft action für alle gespeicherten Nachrichten mit afterSeq &lt; seq &lt;= upToSeq in Reihenfolge auf.
+     */
+    @SuppressWarnings("unchecked")
+    void forEachBetween(long afterSeq, long upToSeq, BiConsumer<String, T> action) {
+        for (long seq = Math.max(afterSeq + 1, oldestSeq()); seq <= Math.min(upToSeq, lastSeq); seq++) {
+            int slot = (int) (seq % entries.length);
+            action.accept(topics[slot], (T) entries[slot]);
+        }
+    }
+
+    /**
+     * Ruft action für die jeweils letzte Nachricht jedes Topics auf, sortiert nach Sequenznummer.
+     * Berücksichtigt nur Nachrichten bis einschließlich upToSeq.
+     */
+    void forEachLatest(long upToSeq, BiConsumer<String, T> action) {
+        latestSeqPerTopic.entrySet().stream()
+                .filter(e -> e.getValue() <= upToSeq)
+                .sorted(Map.Entry.comparingByValue())
+                .forEach(e -> action.accept(e.getKey(), latestPerTopic.get(e.getKey())));
+    }
+}
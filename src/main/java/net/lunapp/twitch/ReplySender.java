@@ -0,0 +1,130 @@
+package net.lunapp.twitch;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * Sendet Antwortteile in den Twitch-Chat, mit einer Pause zwischen zwei Nachrichten desselben Channels.
+ *
+ * Jeder Channel hat eine eigene Warteschlange. Ein gemeinsamer Scheduler schickt den jeweils nächsten
+ * Teil ab, sobald die Pause des Channels vorbei ist; dabei wird nie geschlafen. So wartet kein Channel
+ * auf die Antworten eines anderen, und der Bus-Konsument gibt jedes Event sofort weiter.
+ */
+class ReplySender {
+
+    private final ScheduledExecutorService scheduler;
+    private final BiConsumer<String, String> chatOutput;
+    private final Consumer<Reply> onSent;
+    private final Map<String, Outbox> outboxes = new ConcurrentHashMap<>();
+
+    /**
+     * @param scheduler  Gemeinsamer Scheduler für alle Channels.
+     * @param chatOutput Ziel für ausgehende Nachrichten (Channel, Text).
+     * @param onSent     Wird nach jedem gesendeten Teil im Scheduler-Thread aufgerufen.
+     */
+    ReplySender(ScheduledExecutorService scheduler, BiConsumer<String, String> chatOutput, Consumer<Reply> onSent) {
+        this.scheduler = scheduler;
+        this.chatOutput = chatOutput;
+        this.onSent = onSent;
+    }
+
+    /**
+     * Reiht einen Teil ein. Kehrt sofort zurück; gesendet wird im Scheduler-Thread.
+     *
+     * @param reply       Der Teil.
+     * @param pauseMillis Pause nach diesem Teil, bevor der nächste Teil des Channels gesendet wird.
+     */
+    void submit(Reply reply, long pauseMillis) {
+        Outbox outbox = outboxes.computeIfAbsent(reply.getChannel(), name -> new Outbox());
+        long delay;
+        synchronized (outbox) {
+            outbox.queue.add(new Paced(reply, pauseMillis));
+            if (outbox.scheduled) {
+                return;
+            }
+            outbox.scheduled = true;
+            delay = Math.max(0, outbox.nextSendAt - System.currentTimeMillis());
+        }
+        scheduler.schedule(() -> drain(outbox), delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sendet den nächsten Teil eines Channels und plant den übernächsten nach der Pause ein.
+     */
+    private void drain(Outbox outbox) {
+        Paced next;
+        synchronized (outbox) {
+            next = outbox.queue.poll();
+            if (next == null) {
+                outbox.scheduled = false;
+                return;
+            }
+        }
+        try {
+            chatOutput.accept(next.reply.getChannel(), next.reply.getText());
+            onSent.accept(next.reply);
+        } catch (RuntimeException e) {
+            System.err.println("Fehler beim Senden in #" + next.reply.getChannel() + ": " + e.getMessage());
+        }
+        synchronized (outbox) {
+            outbox.nextSendAt = System.currentTimeMillis() + next.pauseMillis;
+            if (outbox.queue.isEmpty()) {
+                outbox.scheduled = false;
+                return;
+            }
+        }
+        scheduler.schedule(() -> drain(outbox), next.pauseMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Ein Teil einer Antwort für einen Channel.
+     */
+    static class Reply {
+        private final String channel;
+        private final String text;
+        private final long[] mentionTimes;
+
+        /**
+         * @param mentionTimes Empfangszeitpunkte der beantworteten Erwähnungen (System.nanoTime) oder null.
+         */
+        Reply(String channel, String text, long[] mentionTimes) {
+            this.channel = channel;
+            this.text = text;
+            this.mentionTimes = mentionTimes;
+        }
+
+        String getChannel() {
+            return channel;
+        }
+
+        String getText() {
+            return text;
+        }
+
+        long[] getMentionTimes() {
+            return mentionTimes;
+        }
+    }
+
+    private static class Paced {
+        private final Reply reply;
+        private final long pauseMillis;
+
+        Paced(Reply reply, long pauseMillis) {
+            this.reply = reply;
+            this.pauseMillis = pauseMillis;
+        }
+    }
+
+    private static class Outbox {
+        private final ArrayDeque<Paced> queue = new ArrayDeque<>();
+        // Frühester Zeitpunkt für den nächsten Teil; solange scheduled gesetzt ist, sendet drain weiter
+        private long nextSendAt;
+        private boolean scheduled;
+    }
+}
@@ -0,0 +1,69 @@
+package net.lunapp.twitch;
+
+import java.util.Arrays;
+
+/**
+ * Latenzen von Erwähnung bis gesendeter Antwort im Twitch-Chat sowie die Zahl der verworfenen und
+ * der nur mit einer vorgefertigten Antwort (Überlast, Kontingent) bedienten Erwähnungen.
+ * Es werden höchstens die letzten {@value #CAPACITY} Messwerte gehalten.
+ */
+public class ReplyStats {
+
+    private static final int CAPACITY = 1 << 16;
+
+    private final long[] samples = new long[CAPACITY];
+    private long recorded;
+    private long dropped;
+    private long shed;
+    private long maxNanos;
+
+    synchronized void record(long latencyNanos) {
+        samples[(int) (recorded++ % CAPACITY)] = latencyNanos;
+        maxNanos = Math.max(maxNanos, latencyNanos);
+    }
+
+    synchronized void addDropped(int mentions) {
+        dropped += mentions;
+    }
+
+    synchronized void addShed(int mentions) {
+        shed += mentions;
+    }
+
+    /**
+     * @return Anzahl der beantworteten Erwähnungen.
+     */
+    public synchronized long getAnswered() {
+        return recorded;
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return Anzahl der Erwähnungen, die statt einer Modellantwort eine vorgefertigte Antwort bekamen.
+     */
+    public synchronized long getShed() {
+        return shed;
+    }
+
+    public synchronized long getMaxMillis() {
+        return maxNanos / 1_000_000;
+    }
+
+    /**
+     * @param quantile z. B. 0.99.
+     * @return Die Latenz in Millisekunden über die gehaltenen Messwerte, oder 0 ohne Messwerte.
+     */
+    public synchronized long percentileMillis(double quantile) {
+        int count = (int) Math.min(recorded, CAPACITY);
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int index = (int) Math.min(count - 1, Math.ceil(quantile * count) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000;
+    }
+}
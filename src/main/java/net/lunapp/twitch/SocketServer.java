@@ -1,20 +1,128 @@
 package net.lunapp.twitch;
 
+import org.json.JSONArray;
+import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.*;
-import java.net.ServerSocket;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.zip.Inflater;
 
 public class SocketServer {
 
-    // Liste aller verbundenen Clients (synchronisiert)
-    private List<ClientHandler> clients = Collections.synchronizedList(new ArrayList<>());
+    // Topics, die Clients abonnieren können. Der Typ einer Nachricht ist zugleich ihr Topic.
+    // "serverTick" ist der historische Typ der Chat-Antworten, auf den bestehende Overlays hören.
+    public static final String TOPIC_CHAT = "serverTick";
+    public static final String TOPIC_STATUS = "status";
+    public static final String TOPIC_SORT = "sort";
+    public static final String TOPIC_METRICS = "metrics";
+    // Nur für SocketServerLoadTest
+    public static final String TOPIC_LOADTEST = "loadtest";
+    // Abonniert alle Topics (z. B. für Dashboards)
+    public static final String TOPIC_ALL = "*";
+    // Andere Namen werden beim Abonnieren ignoriert, damit Clients keine beliebigen Einträge anlegen können
+    private static final Set<String> KNOWN_TOPICS = Set.of(TOPIC_CHAT, TOPIC_STATUS, TOPIC_SORT, TOPIC_METRICS, TOPIC_LOADTEST);
 
-    private ServerSocket serverSocket;
+    // Subprotokolle (Sec-WebSocket-Protocol). Mit "lunapp.cbor" kommen Nachrichten als binäre
+    // CBOR-Frames (siehe CborEncoder), sonst wie bisher als JSON-Text.
+    public static final String PROTOCOL_JSON = "lunapp.json";
+    public static final String PROTOCOL_CBOR = "lunapp.cbor";
+
+    // Anzahl der I/O-Threads; unabhängig von der Anzahl der Clients
+    private static final int DEFAULT_IO_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors() / 2);
+    private static final int READ_BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_HANDSHAKE_SIZE = 8 * 1024;
+    private static final int DEFAULT_MAX_QUEUED_FRAMES = 256;
+    // Maximale Größe einer (ggf. fragmentierten) Nachricht vom Client
+    private static final int MAX_INBOUND_MESSAGE_SIZE = 64 * 1024;
+    private static final long HANDSHAKE_TIMEOUT_MILLIS = 10_000;
+    // Wie oft jeder I/O-Thread seine Verbindungen auf Heartbeat und Timeouts prüft
+    private static final long HEARTBEAT_TICK_MILLIS = 1_000;
+    // Anzahl der Broadcasts, die für wiederverbindende Clients vorgehalten werden
+    private static final int REPLAY_CAPACITY = 1024;
+    // Unter diesem Pfad liefert der Server die Overlay-Seite für Sortier-Animationen aus
+    public static final String OVERLAY_PATH = "/overlay/sort";
+    private static final String OVERLAY_RESOURCE = "/overlay/sort.html";
+
+    /**
+     * Verhalten, wenn die Ausgangsschlange eines Clients voll ist.
+     */
+    public enum SlowConsumerPolicy {
+        /** Der älteste noch nicht begonnene Frame wird verworfen. */
+        DROP_OLDEST,
+        /** Der Client wird getrennt. */
+        DISCONNECT
+    }
+
+    /**
+     * Sicht der Anwendung auf eine verbundene WebSocket-Verbindung.
+     */
+    public interface Connection {
+        SocketAddress getRemoteAddress();
+
+        /**
+         * Sendet eine Textnachricht nur an diese Verbindung, ohne zu blockieren.
+         */
+        void sendText(String message);
+
+        /**
+         * Schließt die Verbindung mit einem regulären Close-Frame.
+         */
+        void close();
+    }
+
+    /**
+     * Empfängt Textnachrichten von Clients. Wird auf einem I/O-Thread aufgerufen
+     * und darf deshalb nicht blockieren; aufwendige Arbeit muss abgegeben werden.
+     */
+    @FunctionalInterface
+    public interface MessageHandler {
+        void onMessage(Connection connection, String message);
+    }
+
+    // Liste aller verbundenen Clients (Copy-on-Write, Broadcasts iterieren ohne Lock)
+    private final List<ClientHandler> clients = new CopyOnWriteArrayList<>();
+    // Topic -> Abonnenten; Broadcasts serialisieren und schreiben nur für diese Clients
+    private final Map<String, Set<ClientHandler>> subscribers = new ConcurrentHashMap<>();
+    private final Set<ClientHandler> wildcardSubscribers = ConcurrentHashMap.newKeySet();
+    // Sequenzvergabe, Ringpuffer und Verteilung laufen unter diesem Lock, damit jeder Client
+    // die Nachrichten lückenlos in aufsteigender Reihenfolge bekommt
+    private final Object sequenceLock = new Object();
+    private final ReplayBuffer<SharedFrame> replay = new ReplayBuffer<>(REPLAY_CAPACITY);
+
+    private volatile SlowConsumerPolicy slowConsumerPolicy = SlowConsumerPolicy.DROP_OLDEST;
+    private volatile int maxQueuedFrames = DEFAULT_MAX_QUEUED_FRAMES;
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private final AtomicLong slowConsumerDisconnects = new AtomicLong();
+    private final AtomicLong reapedClients = new AtomicLong();
+
+    private volatile MessageHandler messageHandler;
+    private volatile long heartbeatIntervalMillis = 20_000;
+    private volatile long idleTimeoutMillis = 60_000;
+    private volatile boolean compressionEnabled = true;
+    // Kleinere Nachrichten werden nicht komprimiert, weil es sich nicht lohnt
+    private volatile int compressionThreshold = 256;
+
+    private final byte[] overlayPage = loadOverlayPage();
+    private final ServerSocketChannel serverChannel;
+    private final IoWorker[] workers;
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private volatile boolean running = true;
 
     /**
      * Konstruktor: Startet den Server auf dem angegebenen Port.
@@ -23,164 +131,986 @@ public class SocketServer {
      * @throws IOException wenn das Binden an den Port fehlschlägt.
      */
     public SocketServer(int port) throws IOException {
-        serverSocket = new ServerSocket(port);
-        System.out.println("Server gestartet auf Port " + port);
+        this(port, DEFAULT_IO_THREADS);
+    }
 
-        // Starte einen Thread, der ständig auf neue Verbindungen wartet.
-        new Thread(() -> {
-            while (!serverSocket.isClosed()) {
+    /**
+     * Konstruktor: Startet den Server mit einer festen Anzahl an I/O-Threads.
+     * Jeder I/O-Thread bedient mit einem eigenen Selector beliebig viele Verbindungen.
+     *
+     * @param port      Der Port, auf dem der WebSocket-Server lauschen soll.
+     * @param ioThreads Anzahl der I/O-Threads.
+     * @throws IOException wenn das Binden an den Port fehlschlägt.
+     */
+    public SocketServer(int port, int ioThreads) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+
+        workers = new IoWorker[ioThreads];
+        for (int i = 0; i < ioThreads; i++) {
+            workers[i] = new IoWorker(i);
+            workers[i].start();
+        }
+        System.out.println("Server gestartet auf Port " + getPort() + " mit " + ioThreads + " I/O-Threads");
+
+        // Starte einen Thread, der ständig auf neue Verbindungen wartet und sie reihum verteilt.
+        Thread acceptor = new Thread(() -> {
+            while (running && serverChannel.isOpen()) {
                 try {
-                    Socket clientSocket = serverSocket.accept();
-                    System.out.println("Neue Verbindung: " + clientSocket.getInetAddress());
-                    ClientHandler clientHandler = new ClientHandler(clientSocket);
-                    clients.add(clientHandler);
-                    clientHandler.start();  // startet den Client-Thread
+                    SocketChannel channel = serverChannel.accept();
+                    channel.configureBlocking(false);
+                    channel.socket().setTcpNoDelay(true);
+                    IoWorker worker = workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+                    worker.register(channel);
+                } catch (ClosedChannelException e) {
+                    break;
                 } catch (IOException e) {
                     e.printStackTrace();
                 }
             }
-        }).start();
+        }, "SocketServer-Acceptor");
+        acceptor.start();
     }
 
     /**
-     * Sendet eine Nachricht an alle verbundenen Clients.
+     * Sendet eine Nachricht an alle Abonnenten des Chat-Topics.
      *
      * @param message Die zu sendende Nachricht.
      */
     public void broadcast(JSONObject message) {
-        broadcast(message, "serverTick");
+        broadcast(message, TOPIC_CHAT);
     }
 
     public void broadcast(String message) {
         JSONObject jsonObject = new JSONObject();
         jsonObject.put("message", message);
-        broadcast(jsonObject, "serverTick");
+        broadcast(jsonObject, TOPIC_CHAT);
     }
 
+    /**
+     * Sendet eine Nachricht an alle Clients, die das Topic "type" abonniert haben.
+     * Jede Nachricht bekommt eine fortlaufende Sequenznummer ("seq") und wird im Ringpuffer
+     * gespeichert, damit wiederverbindende Clients verpasste Nachrichten nachgeliefert bekommen.
+     *
+     * @param message Die Nutzdaten.
+     * @param type    Typ und zugleich Topic der Nachricht.
+     */
     public void broadcast(JSONObject message, String type) {
-        synchronized (clients) {
-            JSONObject jsonMessage = new JSONObject();
-            jsonMessage.put("type", type);
-            jsonMessage.put("payload", message);
-            for (ClientHandler client : clients) {
-                client.sendMessage(jsonMessage.toString());
+        synchronized (sequenceLock) {
+            long seq = replay.nextSeq();
+            SharedFrame frame = new SharedFrame(type, seq, message);
+            replay.append(seq, type, frame);
+
+            Set<ClientHandler> topicSubscribers = subscribers.get(type);
+            if (topicSubscribers != null) {
+                for (ClientHandler client : topicSubscribers) {
+                    // Wildcard-Abonnenten bekommen die Nachricht unten genau einmal
+                    if (!client.wildcard) {
+                        frame.sendTo(client);
+                    }
+                }
+            }
+            for (ClientHandler client : wildcardSubscribers) {
+                frame.sendTo(client);
+            }
+        }
+    }
+
+    /**
+     * Sendet Binärdaten ohne Umschlag an alle Abonnenten des Topics. Solche Nachrichten bekommen keine
+     * Sequenznummer und landen nicht im Ringpuffer; gedacht für kurzlebige Daten wie Animations-Frames,
+     * bei denen ein Client nach einer Lücke ohnehin auf den nächsten vollständigen Stand wartet.
+     *
+     * @param payload Die Nutzdaten; dürfen danach nicht mehr verändert werden.
+     * @param type    Das Topic.
+     */
+    public void broadcastBinary(byte[] payload, String type) {
+        SharedFrame frame = new SharedFrame(WebSocketFrames.OPCODE_BINARY, payload);
+        Set<ClientHandler> topicSubscribers = subscribers.get(type);
+        if (topicSubscribers != null) {
+            for (ClientHandler client : topicSubscribers) {
+                if (!client.wildcard) {
+                    frame.sendTo(client);
+                }
+            }
+        }
+        for (ClientHandler client : wildcardSubscribers) {
+            frame.sendTo(client);
+        }
+    }
+
+    /**
+     * @return Die Sequenznummer des zuletzt gesendeten Broadcasts.
+     */
+    public long getLastSequence() {
+        synchronized (sequenceLock) {
+            return replay.lastSeq();
+        }
+    }
+
+    /**
+     * Erlaubt Produzenten, teure Aufbereitung zu überspringen, wenn niemand zuhört.
+     *
+     * @param topic Das Topic.
+     * @return true, wenn mindestens ein Client das Topic (oder alle Topics) abonniert hat.
+     */
+    public boolean hasSubscribers(String topic) {
+        Set<ClientHandler> topicSubscribers = subscribers.get(topic);
+        return !wildcardSubscribers.isEmpty() || (topicSubscribers != null && !topicSubscribers.isEmpty());
+    }
+
+    /**
+     * Eine Nachricht, die an mehrere Clients geht. Die Textform (JSON) und die Binärform (CBOR)
+     * werden jeweils erst bei Bedarf und höchstens einmal serialisiert, ebenso jede Frame-Variante.
+     * Alle betroffenen Clients teilen sich die Frames schreibgeschützt.
+     * Nachrichten im Ringpuffer werden nur unter sequenceLock benutzt; die Nutzdaten dürfen
+     * deshalb nach dem Broadcast nicht mehr verändert werden.
+     */
+    private final class SharedFrame {
+        private final String type;
+        private final long seq;
+        private final JSONObject payload;
+        private Encoding text;
+        private Encoding binary;
+
+        /**
+         * @param seq Sequenznummer oder -1 für Nachrichten außerhalb der Sequenz (z. B. Bestätigungen).
+         */
+        SharedFrame(String type, long seq, JSONObject payload) {
+            this.type = type;
+            this.seq = seq;
+            this.payload = payload;
+        }
+
+        /**
+         * Rohtext ohne Umschlag; wird auch an Binär-Clients als Text gesendet.
+         */
+        SharedFrame(String rawText) {
+            this(WebSocketFrames.OPCODE_TEXT, rawText.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Rohdaten ohne Umschlag; gehen unverändert an alle Clients, egal welches Format sie gewählt haben.
+         */
+        SharedFrame(int opcode, byte[] raw) {
+            this(null, -1, null);
+            text = new Encoding(opcode, raw);
+        }
+
+        void sendTo(ClientHandler client) {
+            client.send(new QueuedFrame(frameFor(client), seq));
+        }
+
+        /**
+         * @return Eine eigene Sicht auf die passende Variante des Frames für diesen Client.
+         */
+        ByteBuffer frameFor(ClientHandler client) {
+            if (client.binary && payload != null) {
+                if (binary == null) {
+                    binary = new Encoding(WebSocketFrames.OPCODE_BINARY, CborEncoder.encodeFrame(type, seq, payload));
+                }
+                return binary.frameFor(client.deflate);
+            }
+            if (text == null) {
+                text = new Encoding(WebSocketFrames.OPCODE_TEXT, textEnvelope(type, seq, payload));
+            }
+            return text.frameFor(client.deflate);
+        }
+    }
+
+    /**
+     * Serialisiert den JSON-Umschlag {"type":..,"seq":..,"payload":..} direkt als Text,
+     * ohne dafür ein zusätzliches JSONObject anzulegen.
+     *
+     * @param seq Sequenznummer oder -1, dann entfällt das Feld.
+     * @return Die UTF-8-Bytes des Umschlags.
+     */
+    static byte[] textEnvelope(String type, long seq, JSONObject payload) {
+        String json = "{\"type\":" + JSONObject.quote(type)
+                + (seq >= 0 ? ",\"seq\":" + seq : "")
+                + ",\"payload\":" + payload + "}";
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Ein eingereihter Frame samt Sequenznummer (-1 für Nachrichten außerhalb der Sequenz),
+     * damit ein Resume bereits eingereihte Live-Frames erkennen kann.
+     */
+    private static final class QueuedFrame {
+        private final ByteBuffer frame;
+        private final long seq;
+
+        QueuedFrame(ByteBuffer frame, long seq) {
+            this.frame = frame;
+            this.seq = seq;
+        }
+    }
+
+    /**
+     * Eine serialisierte Form einer Nachricht mit ihren Frame-Varianten (unkomprimiert bzw.
+     * permessage-deflate), die jeweils höchstens einmal kodiert werden.
+     */
+    private final class Encoding {
+        private final int opcode;
+        // Die unkomprimierten Nutzdaten; bei einem fertig übergebenen Frame dessen Bereich hinter dem Kopf
+        private final ByteBuffer payload;
+        private ByteBuffer plain;
+        private ByteBuffer deflated;
+        private boolean deflateTried;
+
+        Encoding(int opcode, byte[] payload) {
+            this.opcode = opcode;
+            this.payload = ByteBuffer.wrap(payload);
+            this.deflateTried = payload.length < compressionThreshold;
+        }
+
+        /**
+         * @param plain Ein fertiger, unkomprimierter Frame; die Nutzdaten werden nicht noch einmal kopiert.
+         */
+        Encoding(int opcode, ByteBuffer plain) {
+            this.opcode = opcode;
+            this.plain = plain;
+            this.payload = plain.duplicate().position(plain.position() + WebSocketFrames.headerLengthOf(plain)).slice();
+            this.deflateTried = payload.remaining() < compressionThreshold;
+        }
+
+        ByteBuffer frameFor(boolean deflate) {
+            if (deflate && !deflateTried) {
+                deflateTried = true;
+                byte[] compressed = PerMessageDeflate.deflate(payload);
+                if (compressed != null) {
+                    deflated = WebSocketFrames.encode(opcode, true, compressed, 0, compressed.length);
+                }
+            }
+            if (deflate && deflated != null) {
+                return deflated.duplicate();
             }
+            if (plain == null) {
+                plain = WebSocketFrames.encode(opcode, payload.array(), 0, payload.remaining());
+            }
+            return plain.duplicate();
+        }
+    }
+
+    /**
+     * Aktiviert oder deaktiviert das Aushandeln von permessage-deflate für neue Verbindungen.
+     */
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    /**
+     * @param compressionThreshold Nachrichten unter dieser Größe in Bytes werden unkomprimiert gesendet.
+     */
+    public void setCompressionThreshold(int compressionThreshold) {
+        this.compressionThreshold = compressionThreshold;
+    }
+
+    public void setSlowConsumerPolicy(SlowConsumerPolicy slowConsumerPolicy) {
+        this.slowConsumerPolicy = Objects.requireNonNull(slowConsumerPolicy);
+    }
+
+    /**
+     * @param maxQueuedFrames Maximale Anzahl ausstehender Frames pro Client, gilt für neue Verbindungen.
+     */
+    public void setMaxQueuedFrames(int maxQueuedFrames) {
+        if (maxQueuedFrames <= 0) {
+            throw new IllegalArgumentException("maxQueuedFrames muss positiv sein");
+        }
+        this.maxQueuedFrames = maxQueuedFrames;
+    }
+
+    /**
+     * Setzt den Empfänger für Textnachrichten der Clients.
+     *
+     * @param messageHandler Der Handler oder null, um eingehende Nachrichten zu ignorieren.
+     */
+    public void setMessageHandler(MessageHandler messageHandler) {
+        this.messageHandler = messageHandler;
+    }
+
+    /**
+     * Stellt den Heartbeat ein. Hat ein Client länger als heartbeatIntervalMillis nichts gesendet,
+     * bekommt er einen Ping; nach idleTimeoutMillis ohne Daten wird die Verbindung getrennt.
+     *
+     * @param heartbeatIntervalMillis Abstand zwischen Pings in Millisekunden.
+     * @param idleTimeoutMillis       Maximale Zeit ohne eingehende Daten in Millisekunden.
+     */
+    public void setHeartbeat(long heartbeatIntervalMillis, long idleTimeoutMillis) {
+        if (heartbeatIntervalMillis <= 0 || idleTimeoutMillis <= heartbeatIntervalMillis) {
+            throw new IllegalArgumentException("idleTimeoutMillis muss größer als heartbeatIntervalMillis sein");
+        }
+        this.heartbeatIntervalMillis = heartbeatIntervalMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * @return Anzahl der Clients, die wegen fehlender Antwort auf den Heartbeat getrennt wurden.
+     */
+    public long getReapedClients() {
+        return reapedClients.get();
+    }
+
+    /**
+     * @return Anzahl der Frames, die wegen voller Ausgangsschlangen verworfen wurden.
+     */
+    public long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * @return Anzahl der Clients, die wegen voller Ausgangsschlange getrennt wurden.
+     */
+    public long getSlowConsumerDisconnects() {
+        return slowConsumerDisconnects.get();
+    }
+
+    /**
+     * @return Der tatsächlich gebundene Port (nützlich bei Port 0).
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return Anzahl der Clients mit abgeschlossenem Handshake.
+     */
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Stoppt den Server und schließt alle Verbindungen.
+     */
+    public void stop() {
+        running = false;
+        try {
+            serverChannel.close();
+        } catch (IOException e) {
+            // Ignorieren
+        }
+        for (IoWorker worker : workers) {
+            worker.shutdown();
         }
     }
 
     /**
-     * Interne Klasse, die einen einzelnen Client behandelt.
+     * I/O-Thread mit eigenem Selector. Liest mit einem direkten Puffer, der von allen
+     * Verbindungen dieses Threads gemeinsam genutzt wird, und schreibt ausstehende Frames.
      */
-    private class ClientHandler extends Thread {
-        private Socket socket;
-        private InputStream in;
-        private OutputStream out;
+    private class IoWorker extends Thread {
+        private final Selector selector;
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        // Ohne Kontextübernahme kann ein Inflater von allen Verbindungen des Threads geteilt werden
+        private final Inflater inflater = new Inflater(true);
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+        IoWorker(int index) throws IOException {
+            super("SocketServer-IO-" + index);
+            selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            execute(() -> {
+                try {
+                    SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                    key.attach(new ClientHandler(channel, key, this));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                    closeQuietly(channel);
+                }
+            });
+        }
 
-        public ClientHandler(Socket socket) {
-            this.socket = socket;
+        /**
+         * Führt eine Aufgabe auf diesem I/O-Thread aus, damit Selector-Zustand nur hier verändert wird.
+         */
+        void execute(Runnable task) {
+            tasks.add(task);
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            execute(() -> {
+                for (SelectionKey key : selector.keys()) {
+                    if (key.attachment() instanceof ClientHandler) {
+                        ClientHandler client = (ClientHandler) key.attachment();
+                        client.closeWithStatus(FrameDecoder.CLOSE_GOING_AWAY, "Server wird beendet");
+                        client.closeChannel();
+                    }
+                }
+                closeQuietly(selector);
+            });
+        }
+
+        /**
+         * Sendet Pings an stille Verbindungen und trennt Verbindungen, die zu lange nichts gesendet haben.
+         */
+        private void heartbeat(long now) {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof ClientHandler) {
+                    ((ClientHandler) key.attachment()).checkHeartbeat(now);
+                }
+            }
         }
 
         @Override
         public void run() {
-            try {
-                in = socket.getInputStream();
-                out = socket.getOutputStream();
-
-                // ===== WebSocket Handshake =====
-                BufferedReader reader = new BufferedReader(new InputStreamReader(in, "UTF-8"));
-                String line = reader.readLine();
-                String webSocketKey = null;
-
-                // Die erste Zeile enthält z. B. "GET / HTTP/1.1". Danach folgen die Header.
-                while (line != null && !line.isEmpty()) {
-                    // Header "Sec-WebSocket-Key" herausfiltern:
-                    if (line.startsWith("Sec-WebSocket-Key:")) {
-                        webSocketKey = line.substring("Sec-WebSocket-Key:".length()).trim();
+            long nextHeartbeat = System.currentTimeMillis() + HEARTBEAT_TICK_MILLIS;
+            while (selector.isOpen()) {
+                try {
+                    selector.select(HEARTBEAT_TICK_MILLIS);
+                    Runnable task;
+                    while ((task = tasks.poll()) != null) {
+                        task.run();
+                    }
+                    if (!selector.isOpen()) {
+                        break;
+                    }
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        ClientHandler client = (ClientHandler) key.attachment();
+                        if (!key.isValid()) {
+                            client.closeChannel();
+                            continue;
+                        }
+                        if (key.isReadable()) {
+                            client.onReadable(readBuffer);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            client.flush();
+                        }
+                    }
+                    long now = System.currentTimeMillis();
+                    if (now >= nextHeartbeat) {
+                        heartbeat(now);
+                        nextHeartbeat = now + HEARTBEAT_TICK_MILLIS;
                     }
-                    line = reader.readLine();
+                } catch (ClosedSelectorException e) {
+                    break;
+                } catch (IOException e) {
+                    e.printStackTrace();
                 }
+            }
+        }
+    }
+
+    /**
+     * Zustand einer einzelnen Client-Verbindung. Wird ausschließlich vom zugehörigen I/O-Thread
+     * gelesen und geschrieben; andere Threads reihen nur Frames in die begrenzte Ausgangsschlange ein.
+     */
+    private class ClientHandler implements Connection, FrameDecoder.Listener {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private final IoWorker worker;
+        private final SocketAddress address;
+        // Frames des Servers selbst (Handshake, Steuerframes); nicht begrenzt, nie verworfen
+        private final Queue<ByteBuffer> priority = new ConcurrentLinkedQueue<>();
+        private final BlockingQueue<QueuedFrame> outbound = new ArrayBlockingQueue<>(maxQueuedFrames);
+        private final AtomicBoolean flushScheduled = new AtomicBoolean();
+        // Frame, der gerade teilweise geschrieben ist; gehört allein dem I/O-Thread
+        private ByteBuffer current;
+        private volatile boolean closing;
+        private ByteBuffer handshakeBuffer = ByteBuffer.allocate(MAX_HANDSHAKE_SIZE);
+        private boolean open;
+        // permessage-deflate wurde beim Handshake vereinbart
+        private volatile boolean deflate;
+        // Binäres CBOR-Format wurde beim Handshake vereinbart
+        private volatile boolean binary;
+        // Abonnierte Topics (nur I/O-Thread) und ob alle Topics abonniert sind
+        private final Set<String> topics = new HashSet<>();
+        private volatile boolean wildcard;
+        // Auf dieser Verbindung wurden alle abonnierten Nachrichten mit deliveredAfterSeq < seq <= lastSentSeq
+        // geschrieben (bzw. für das Schreiben übernommen); nur I/O-Thread
+        private long deliveredAfterSeq;
+        private long lastSentSeq;
+        private final FrameDecoder decoder = new FrameDecoder(MAX_INBOUND_MESSAGE_SIZE, this);
+        // Zeitpunkte für Heartbeat und Idle-Timeout (nur I/O-Thread)
+        private long lastReceived = System.currentTimeMillis();
+        private long lastPingSent;
+        private boolean closeSent;
+        private boolean closeAfterFlush;
 
-                if (webSocketKey == null) {
-                    System.out.println("Kein WebSocket-Key gefunden. Verbindung wird geschlossen.");
-                    socket.close();
+        ClientHandler(SocketChannel channel, SelectionKey key, IoWorker worker) throws IOException {
+            this.channel = channel;
+            this.key = key;
+            this.worker = worker;
+            this.address = channel.getRemoteAddress();
+            System.out.println("Neue Verbindung: " + address);
+        }
+
+        void onReadable(ByteBuffer readBuffer) {
+            readBuffer.clear();
+            int read;
+            try {
+                read = channel.read(readBuffer);
+            } catch (IOException e) {
+                closeChannel();
+                return;
+            }
+            if (read == -1) {
+                closeChannel();
+                return;
+            }
+            lastReceived = System.currentTimeMillis();
+            readBuffer.flip();
+
+            if (!open) {
+                if (readBuffer.remaining() > handshakeBuffer.remaining()) {
+                    System.out.println("Handshake zu groß. Verbindung wird geschlossen.");
+                    closeChannel();
+                    return;
+                }
+                handshakeBuffer.put(readBuffer);
+                handshakeBuffer.flip();
+                int headerEnd = HandshakeRequest.findHeaderEnd(handshakeBuffer);
+                if (headerEnd == -1) {
+                    // Header noch unvollständig, auf weitere Daten warten
+                    handshakeBuffer.compact();
+                    return;
+                }
+                HandshakeRequest request = HandshakeRequest.parse(handshakeBuffer, headerEnd);
+                completeHandshake(request);
+                if (!open) {
                     return;
                 }
+                // Direkt hinter dem Header mitgesendete Frames nicht verlieren
+                decoder.feed(handshakeBuffer);
+                handshakeBuffer = null;
+                return;
+            }
+            decoder.feed(readBuffer);
+        }
 
-                // Erzeuge den Accept-Key gemäß dem Protokoll (SHA-1 + Base64)
-                String acceptKey = generateAcceptKey(webSocketKey);
+        private void completeHandshake(HandshakeRequest request) {
+            if (request != null && !request.isWebSocketUpgrade() && isOverlayRequest(request)) {
+                // Die Overlay-Seite kommt vom selben Port, damit OBS nur eine Adresse braucht
+                String header = "HTTP/1.1 200 OK\r\n" +
+                        "Content-Type: text/html; charset=utf-8\r\n" +
+                        "Content-Length: " + overlayPage.length + "\r\n" +
+                        "Connection: close\r\n\r\n";
+                priority.add(ByteBuffer.wrap(header.getBytes(StandardCharsets.US_ASCII)));
+                priority.add(ByteBuffer.wrap(overlayPage));
+                closeAfterFlush = true;
+                flush();
+                return;
+            }
+            if (request == null || !request.isWebSocketUpgrade()) {
+                System.out.println("Kein WebSocket-Key gefunden. Verbindung wird geschlossen.");
+                priority.add(ByteBuffer.wrap("HTTP/1.1 400 Bad Request\r\nConnection: close\r\n\r\n"
+                        .getBytes(StandardCharsets.US_ASCII)));
+                flush();
+                closeChannel();
+                return;
+            }
 
-                // Sende die Antwort für den Handshake
-                String response = "HTTP/1.1 101 Switching Protocols\r\n" +
-                        "Upgrade: websocket\r\n" +
-                        "Connection: Upgrade\r\n" +
-                        "Sec-WebSocket-Accept: " + acceptKey + "\r\n\r\n";
-                out.write(response.getBytes("UTF-8"));
-                out.flush();
-                System.out.println("Handshake abgeschlossen mit " + socket.getInetAddress());
+            // Erzeuge den Accept-Key gemäß dem Protokoll (SHA-1 + Base64)
+            String acceptKey = generateAcceptKey(request.header("Sec-WebSocket-Key"));
 
-                // ===== Hier könnte man eingehende Nachrichten verarbeiten =====
-                // Dieser einfache Handler liest hier nur aus dem InputStream, ohne die Frames zu verarbeiten.
-                while (!socket.isClosed()) {
-                    int b = in.read();
-                    if (b == -1) {
-                        break;
+            // permessage-deflate aushandeln, falls der Client es anbietet
+            if (compressionEnabled && PerMessageDeflate.accepts(request.header("Sec-WebSocket-Extensions"))) {
+                deflate = true;
+                decoder.enableDeflate(worker.inflater);
+            }
+
+            // Nachrichtenformat aushandeln: Subprotokoll oder ?format=cbor für einfache Clients
+            String protocol = selectProtocol(request.header("Sec-WebSocket-Protocol"));
+            binary = PROTOCOL_CBOR.equals(protocol) || "cbor".equals(request.queryParameter("format"));
+
+            // Sende die Antwort für den Handshake
+            String response = "HTTP/1.1 101 Switching Protocols\r\n" +
+                    "Upgrade: websocket\r\n" +
+                    "Connection: Upgrade\r\n" +
+                    (deflate ? "Sec-WebSocket-Extensions: " + PerMessageDeflate.RESPONSE + "\r\n" : "") +
+                    (protocol != null ? "Sec-WebSocket-Protocol: " + protocol + "\r\n" : "") +
+                    "Sec-WebSocket-Accept: " + acceptKey + "\r\n\r\n";
+            priority.add(ByteBuffer.wrap(response.getBytes(StandardCharsets.US_ASCII)));
+            flush();
+            open = true;
+            clients.add(this);
+
+            // Topics können direkt in der URL abonniert werden (z. B. für OBS-Browserquellen),
+            // ansonsten bekommen Clients wie bisher die Chat-Antworten.
+            String initialTopics = request.queryParameter("topics");
+            List<String> topicNames = initialTopics != null
+                    ? Arrays.asList(initialTopics.split(","))
+                    : List.of(TOPIC_CHAT);
+            synchronized (sequenceLock) {
+                subscribe(topicNames);
+                deliveredAfterSeq = replay.lastSeq();
+                lastSentSeq = deliveredAfterSeq;
+                // Wiederverbindende Clients geben mit ?resume=N ihre zuletzt gesehene Sequenznummer an
+                String resume = request.queryParameter("resume");
+                if (resume != null) {
+                    try {
+                        resume(Long.parseLong(resume));
+                    } catch (NumberFormatException e) {
+                        System.out.println("Ungültiger resume-Parameter von " + address + ": " + resume);
                     }
-                    // Optional: Hier könnte man den WebSocket-Frame weiter parsen.
                 }
-            } catch (IOException e) {
-                e.printStackTrace();
-            } finally {
-                try {
-                    socket.close();
-                } catch (IOException e) {
-                    // Ignorieren
+            }
+            System.out.println("Handshake abgeschlossen mit " + address);
+        }
+
+        private boolean isOverlayRequest(HandshakeRequest request) {
+            String path = request.getPath();
+            int query = path.indexOf('?');
+            return overlayPage != null && "GET".equals(request.getMethod())
+                    && OVERLAY_PATH.equals(query == -1 ? path : path.substring(0, query));
+        }
+
+        /**
+         * Wählt aus den vom Client angebotenen Subprotokollen das erste unterstützte.
+         *
+         * @param offered Wert des Headers "Sec-WebSocket-Protocol" oder null.
+         * @return Das gewählte Subprotokoll oder null.
+         */
+        private String selectProtocol(String offered) {
+            if (offered == null) {
+                return null;
+            }
+            for (String candidate : offered.split(",")) {
+                String protocol = candidate.trim();
+                if (protocol.equals(PROTOCOL_CBOR) || protocol.equals(PROTOCOL_JSON)) {
+                    return protocol;
                 }
-                clients.remove(this);
-                System.out.println("Verbindung geschlossen: " + socket.getInetAddress());
             }
+            return null;
         }
 
         /**
-         * Sendet eine Textnachricht an diesen Client als WebSocket-Frame.
+         * Prüft Heartbeat und Timeouts dieser Verbindung. Wird periodisch vom I/O-Thread aufgerufen.
          *
-         * @param message Die Nachricht als String.
+         * @param now Aktuelle Zeit in Millisekunden.
          */
-        public void sendMessage(String message) {
+        void checkHeartbeat(long now) {
+            long idle = now - lastReceived;
+            if (!open) {
+                if (idle > HANDSHAKE_TIMEOUT_MILLIS) {
+                    System.out.println("Handshake-Timeout: " + address);
+                    closeChannel();
+                }
+                return;
+            }
+            if (idle > idleTimeoutMillis) {
+                // Halb offene Verbindung: keine Daten und kein Pong mehr
+                reapedClients.incrementAndGet();
+                System.out.println("Keine Antwort auf Heartbeat, Verbindung wird getrennt: " + address);
+                closeChannel();
+            } else if (idle > heartbeatIntervalMillis && now - lastPingSent > heartbeatIntervalMillis) {
+                lastPingSent = now;
+                byte[] payload = ByteBuffer.allocate(Long.BYTES).putLong(now).array();
+                sendControl(WebSocketFrames.encode(WebSocketFrames.OPCODE_PING, payload));
+            }
+        }
+
+        @Override
+        public void onText(String message) {
+            if (handleSubscription(message)) {
+                return;
+            }
+            MessageHandler handler = messageHandler;
+            if (handler == null) {
+                return;
+            }
             try {
-                byte[] messageBytes = message.getBytes("UTF-8");
-                int length = messageBytes.length;
-                ByteArrayOutputStream frame = new ByteArrayOutputStream();
-
-                // Erster Byte: FIN = 1 und opcode 0x1 (Textframe)
-                frame.write(0x81);
-
-                // Bestimme die Länge des Payloads
-                if (length <= 125) {
-                    frame.write(length);
-                } else if (length <= 65535) {
-                    frame.write(126);
-                    frame.write((length >> 8) & 0xFF);
-                    frame.write(length & 0xFF);
-                } else {
-                    frame.write(127);
-                    // Für Nachrichten > 65535 Bytes: 8-Byte Länge. Hier wird vorausgesetzt, dass die Nachricht nicht
-                    // länger als 2^32 ist, deshalb werden die oberen 4 Bytes als 0 geschrieben.
-                    frame.write(new byte[]{0, 0, 0, 0});
-                    frame.write((length >> 24) & 0xFF);
-                    frame.write((length >> 16) & 0xFF);
-                    frame.write((length >> 8) & 0xFF);
-                    frame.write(length & 0xFF);
-                }
-
-                // Payload-Daten schreiben
-                frame.write(messageBytes);
-                out.write(frame.toByteArray());
-                out.flush();
-            } catch (IOException e) {
+                handler.onMessage(this, message);
+            } catch (RuntimeException e) {
                 e.printStackTrace();
             }
         }
 
+        /**
+         * Verarbeitet {"type":"subscribe"|"unsubscribe","topics":[...]} direkt im Server.
+         *
+         * @return true, wenn die Nachricht eine Abo-Nachricht war.
+         */
+        private boolean handleSubscription(String message) {
+            if (!message.startsWith("{")) {
+                return false;
+            }
+            JSONObject json;
+            try {
+                json = new JSONObject(message);
+            } catch (JSONException e) {
+                return false;
+            }
+            String type = json.optString("type");
+            if (type.equals("resume")) {
+                synchronized (sequenceLock) {
+                    resume(json.optLong("seq", 0));
+                }
+                return true;
+            }
+            if (!type.equals("subscribe") && !type.equals("unsubscribe")) {
+                return false;
+            }
+            JSONArray requested = json.optJSONArray("topics");
+            List<String> names = new ArrayList<>();
+            if (requested != null) {
+                for (int i = 0; i < requested.length(); i++) {
+                    names.add(requested.optString(i));
+                }
+            }
+            if (type.equals("subscribe")) {
+                subscribe(names);
+            } else {
+                unsubscribe(names);
+            }
+
+            JSONObject payload = new JSONObject();
+            payload.put("topics", new JSONArray(wildcard ? List.of(TOPIC_ALL) : topics));
+            new SharedFrame("subscribed", -1, payload).sendTo(this);
+            return true;
+        }
+
+        /**
+         * Liefert alle abonnierten Nachrichten nach afterSeq bis zum aktuellen Stand nach. Liegt afterSeq
+         * nicht mehr im Ringpuffer, wird stattdessen pro Topic die letzte Nachricht geschickt. Muss unter
+         * sequenceLock auf dem I/O-Thread aufgerufen werden.
+         *
+         * Bereits eingereihte, aber noch nicht geschriebene Live-Frames werden aus der Ausgangsschlange
+         * genommen, weil sie im nachgelieferten Bereich enthalten sind. Die nachgelieferten Frames laufen
+         * über die unbegrenzte Vorrangschlange (dort greift die SlowConsumerPolicy nicht), danach folgen
+         * die späteren Live-Frames; der Client sieht die Sequenznummern so aufsteigend. Was auf dieser
+         * Verbindung schon geschrieben wurde, wird nicht wiederholt. Wurde vor einem Resume per Nachricht
+         * schon live geschrieben, kommen ältere Lücken zwangsläufig danach; Clients sollten resume daher
+         * direkt nach dem Verbinden senden.
+         *
+         * @param afterSeq Die letzte Sequenznummer, die der Client gesehen hat.
+         */
+        private void resume(long afterSeq) {
+            long upToSeq = replay.lastSeq();
+            boolean replayable = replay.canReplayFrom(afterSeq);
+            outbound.removeIf(queued -> queued.seq >= 0);
+            int[] count = new int[1];
+            BiConsumer<String, SharedFrame> deliver = (topic, frame) -> {
+                boolean delivered = frame.seq > deliveredAfterSeq && frame.seq <= lastSentSeq;
+                if (!delivered && (wildcard || topics.contains(topic))) {
+                    priority.add(frame.frameFor(this));
+                    count[0]++;
+                }
+            };
+            if (replayable) {
+                replay.forEachBetween(afterSeq, upToSeq, deliver);
+                deliveredAfterSeq = Math.min(deliveredAfterSeq, afterSeq);
+            } else {
+                replay.forEachLatest(upToSeq, deliver);
+            }
+            lastSentSeq = upToSeq;
+
+            JSONObject payload = new JSONObject();
+            payload.put("mode", replayable ? "replay" : "snapshot");
+            payload.put("from", afterSeq);
+            payload.put("to", upToSeq);
+            payload.put("frames", count[0]);
+            priority.add(new SharedFrame("resumed", -1, payload).frameFor(this));
+            flush();
+        }
+
+        private void subscribe(Collection<String> names) {
+            for (String name : names) {
+                String topic = name.trim();
+                if (topic.isEmpty()) {
+                    continue;
+                }
+                if (topic.equals(TOPIC_ALL)) {
+                    wildcard = true;
+                    wildcardSubscribers.add(this);
+                } else if (KNOWN_TOPICS.contains(topic) && topics.add(topic)) {
+                    subscribers.compute(topic, (t, topicSubscribers) -> {
+                        Set<ClientHandler> result = topicSubscribers != null ? topicSubscribers : ConcurrentHashMap.newKeySet();
+                        result.add(this);
+                        return result;
+                    });
+                }
+            }
+        }
+
+        private void unsubscribe(Collection<String> names) {
+            for (String name : names) {
+                String topic = name.trim();
+                if (topic.equals(TOPIC_ALL)) {
+                    wildcard = false;
+                    wildcardSubscribers.remove(this);
+                } else if (topics.remove(topic)) {
+                    // Der letzte Abonnent nimmt den Eintrag des Topics mit
+                    subscribers.computeIfPresent(topic, (t, topicSubscribers) -> {
+                        topicSubscribers.remove(this);
+                        return topicSubscribers.isEmpty() ? null : topicSubscribers;
+                    });
+                }
+            }
+        }
+
+        @Override
+        public void onBinary(byte[] message) {
+            // Binärnachrichten von Clients werden derzeit nicht unterstützt und ignoriert.
+        }
+
+        @Override
+        public void onPing(byte[] payload) {
+            sendControl(WebSocketFrames.encode(WebSocketFrames.OPCODE_PONG, payload));
+        }
+
+        @Override
+        public void onPong(byte[] payload) {
+            // lastReceived wurde bereits beim Lesen aktualisiert
+        }
+
+        @Override
+        public void onClose(int code, String reason) {
+            // Close-Frame des Clients spiegeln und danach die Verbindung schließen
+            closeWithStatus(code == 1005 || code == 1006 || code == 1015 ? FrameDecoder.CLOSE_NORMAL : code, "");
+        }
+
+        @Override
+        public void onProtocolError(int code, String reason) {
+            System.out.println("Protokollfehler von " + address + ": " + reason);
+            closeWithStatus(code, reason);
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return address;
+        }
+
+        @Override
+        public void sendText(String message) {
+            new SharedFrame(message).sendTo(this);
+        }
+
+        @Override
+        public void close() {
+            worker.execute(() -> closeWithStatus(FrameDecoder.CLOSE_NORMAL, ""));
+        }
+
+        /**
+         * Sendet einen Steuerframe vor allen wartenden Nachrichten. Nur auf dem I/O-Thread aufrufen.
+         */
+        private void sendControl(ByteBuffer frame) {
+            if (closeSent) {
+                return;
+            }
+            priority.add(frame);
+            flush();
+        }
+
+        /**
+         * Sendet einen Close-Frame und schließt die Verbindung, sobald er geschrieben ist.
+         * Noch nicht begonnene Nachrichten werden verworfen. Nur auf dem I/O-Thread aufrufen.
+         */
+        void closeWithStatus(int code, String reason) {
+            if (closeSent || !channel.isOpen()) {
+                return;
+            }
+            closeSent = true;
+            closing = true;
+            outbound.clear();
+            priority.add(WebSocketFrames.close(code, reason));
+            closeAfterFlush = true;
+            flush();
+        }
+
+        /**
+         * Reiht einen fertig kodierten Frame für diesen Client ein. Die Methode blockiert nie;
+         * ist die Schlange voll, greift die eingestellte {@link SlowConsumerPolicy}.
+         *
+         * @param frame Der Frame (eigene Sicht auf einen ggf. geteilten Puffer) mit Sequenznummer.
+         */
+        void send(QueuedFrame frame) {
+            if (closing) {
+                return;
+            }
+            while (!outbound.offer(frame)) {
+                if (slowConsumerPolicy == SlowConsumerPolicy.DISCONNECT) {
+                    closing = true;
+                    slowConsumerDisconnects.incrementAndGet();
+                    System.out.println("Client zu langsam, Verbindung wird getrennt: " + address);
+                    worker.execute(this::closeChannel);
+                    return;
+                }
+                if (outbound.poll() != null) {
+                    droppedFrames.incrementAndGet();
+                }
+            }
+            scheduleFlush();
+        }
+
+        private void scheduleFlush() {
+            if (flushScheduled.compareAndSet(false, true)) {
+                worker.execute(() -> {
+                    flushScheduled.set(false);
+                    flush();
+                });
+            }
+        }
+
+        /**
+         * Schreibt so viele ausstehende Frames wie möglich. Bleibt ein Rest übrig,
+         * wird OP_WRITE gesetzt und beim nächsten Selektieren weitergeschrieben.
+         */
+        void flush() {
+            if (!channel.isOpen()) {
+                return;
+            }
+            try {
+                while (current != null || (current = nextFrame()) != null) {
+                    channel.write(current);
+                    if (current.hasRemaining()) {
+                        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+                        return;
+                    }
+                    current = null;
+                }
+                if (closeAfterFlush) {
+                    closeChannel();
+                    return;
+                }
+                if (key.isValid()) {
+                    key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+                }
+            } catch (IOException | CancelledKeyException e) {
+                closeChannel();
+            }
+        }
+
+        private ByteBuffer nextFrame() {
+            ByteBuffer frame = priority.poll();
+            if (frame != null) {
+                return frame;
+            }
+            QueuedFrame queued = outbound.poll();
+            if (queued == null) {
+                return null;
+            }
+            if (queued.seq >= 0) {
+                lastSentSeq = queued.seq;
+            }
+            return queued.frame;
+        }
+
+        /**
+         * Schließt den Socket sofort, ohne Close-Frame. Nur auf dem I/O-Thread aufrufen.
+         */
+        void closeChannel() {
+            if (!channel.isOpen()) {
+                return;
+            }
+            closing = true;
+            key.cancel();
+            closeQuietly(channel);
+            current = null;
+            priority.clear();
+            outbound.clear();
+            clients.remove(this);
+            unsubscribe(new ArrayList<>(topics));
+            wildcardSubscribers.remove(this);
+            System.out.println("Verbindung geschlossen: " + address);
+        }
+
         /**
          * Generiert den "Sec-WebSocket-Accept"-Headerwert aus dem übergebenen Key.
          *
@@ -192,36 +1122,32 @@ public class SocketServer {
                 String magic = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
                 String acceptSeed = key + magic;
                 MessageDigest sha1 = MessageDigest.getInstance("SHA-1");
-                byte[] hash = sha1.digest(acceptSeed.getBytes("UTF-8"));
+                byte[] hash = sha1.digest(acceptSeed.getBytes(StandardCharsets.UTF_8));
                 return Base64.getEncoder().encodeToString(hash);
             } catch (Exception e) {
                 throw new RuntimeException("Fehler beim Generieren des Accept-Key", e);
             }
         }
+    }
 
-        // Beispiel: Main-Methode zum Starten des Servers
-        public static void main(String[] args) {
-            try {
-                // Starte den WebSocket-Server auf Port 8080
-                SocketServer server = new SocketServer(8080);
-
-                // Beispiel-Broadcast: Alle 10 Sekunden wird eine Nachricht an alle Clients gesendet.
-                new Thread(() -> {
-                    while (true) {
-                        try {
-                            Thread.sleep(10000);
-                            server.broadcast("Hallo an alle Clients!");
-                            System.out.println("Broadcast gesendet.");
-                        } catch (InterruptedException e) {
-                            e.printStackTrace();
-                        }
-                    }
-                }).start();
-
-            } catch (IOException e) {
-                e.printStackTrace();
+    private static byte[] loadOverlayPage() {
+        try (InputStream in = SocketServer.class.getResourceAsStream(OVERLAY_RESOURCE)) {
+            if (in == null) {
+                System.err.println("Overlay-Seite nicht gefunden: " + OVERLAY_RESOURCE);
+                return null;
             }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            System.err.println("Fehler beim Laden der Overlay-Seite: " + e.getMessage());
+            return null;
         }
+    }
 
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Ignorieren
+        }
     }
 }
@@ -0,0 +1,335 @@
+package net.lunapp.twitch;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lasttest für den {@link SocketServer}: öffnet N synthetische WebSocket-Clients (davon einige
+ * absichtlich langsame Leser), sendet Broadcasts mit fester Rate und misst die Zustelllatenz.
+ *
+ * Start: java -cp target/classes:... net.lunapp.twitch.SocketServerLoadTest
+ *            [--clients 1000] [--slow 10] [--rate 50] [--duration 20] [--size 256] [--io-threads 2]
+ *
+ * Ausgegeben werden Latenz-Perzentile, Durchsatz, Anzahl der Server-Threads, Heap-Nutzung
+ * sowie verworfene Frames und getrennte Clients.
+ */
+public class SocketServerLoadTest {
+
+    private static final String TOPIC = SocketServer.TOPIC_LOADTEST;
+    private static final int CLIENT_THREADS = 2;
+    // Histogramm: 10-µs-Buckets bis 2 s, darüber ein Überlauf-Bucket
+    private static final int BUCKET_MICROS = 10;
+    private static final int BUCKETS = 200_000;
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int clients = Integer.parseInt(options.getOrDefault("clients", "1000"));
+        int slowClients = Integer.parseInt(options.getOrDefault("slow", "10"));
+        int rate = Integer.parseInt(options.getOrDefault("rate", "50"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "20"));
+        int size = Integer.parseInt(options.getOrDefault("size", "256"));
+        int ioThreads = Integer.parseInt(options.getOrDefault("io-threads", "2"));
+
+        SocketServer server = new SocketServer(0, ioThreads);
+        int port = server.getPort();
+
+        // Schnelle Clients: wenige Selector-Threads lesen alle Verbindungen
+        ClientReader[] readers = new ClientReader[CLIENT_THREADS];
+        for (int i = 0; i < readers.length; i++) {
+            readers[i] = new ClientReader(i);
+            readers[i].start();
+        }
+        for (int i = 0; i < clients - slowClients; i++) {
+            readers[i % readers.length].connect(port);
+        }
+
+        // Langsame Clients: blockierende Sockets mit kleinem Empfangspuffer, die nur selten lesen
+        SlowReaders slowReaders = new SlowReaders(port, slowClients);
+        slowReaders.start();
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (server.getClientCount() < clients && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        System.out.println("Verbunden: " + server.getClientCount() + " von " + clients + " Clients");
+
+        String padding = "x".repeat(Math.max(0, size - 40));
+        long intervalNanos = 1_000_000_000L / rate;
+        long start = System.nanoTime();
+        long end = start + duration * 1_000_000_000L;
+        long sent = 0;
+        long next = start;
+        while (System.nanoTime() < end) {
+            JSONObject payload = new JSONObject();
+            payload.put("t", System.nanoTime());
+            payload.put("pad", padding);
+            server.broadcast(payload, TOPIC);
+            sent++;
+            next += intervalNanos;
+            long sleep = next - System.nanoTime();
+            if (sleep > 0) {
+                Thread.sleep(sleep / 1_000_000, (int) (sleep % 1_000_000));
+            }
+        }
+        // Nachzügler abwarten
+        Thread.sleep(1_000);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long serverThreads = Thread.getAllStackTraces().keySet().stream()
+                .filter(t -> t.getName().startsWith("SocketServer-"))
+                .count();
+        long heapUsed = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        long[] histogram = new long[BUCKETS + 1];
+        long received = 0;
+        for (ClientReader reader : readers) {
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += reader.histogram[i];
+            }
+            received += reader.received;
+        }
+
+        System.out.println("===== Ergebnis =====");
+        System.out.printf("Broadcasts:          %d (%.1f/s)%n", sent, sent / seconds);
+        System.out.printf("Zugestellt (schnell): %d von %d (%.0f Frames/s)%n",
+                received, sent * (clients - slowClients), received / seconds);
+        System.out.printf("Latenz p50/p90/p99/p99.9/max: %s / %s / %s / %s / %s%n",
+                percentile(histogram, 0.50), percentile(histogram, 0.90), percentile(histogram, 0.99),
+                percentile(histogram, 0.999), percentile(histogram, 1.0));
+        System.out.printf("Langsame Clients:    %d Bytes gelesen%n", slowReaders.bytesRead.get());
+        System.out.printf("Verworfene Frames:   %d, getrennte langsame Clients: %d%n",
+                server.getDroppedFrames(), server.getSlowConsumerDisconnects());
+        System.out.printf("Server-Threads:      %d, Threads gesamt: %d%n",
+                serverThreads, ManagementFactory.getThreadMXBean().getThreadCount());
+        System.out.printf("Heap genutzt:        %.1f MiB%n", heapUsed / (1024.0 * 1024.0));
+
+        server.stop();
+        slowReaders.running = false;
+        for (ClientReader reader : readers) {
+            reader.running = false;
+            reader.selector.wakeup();
+        }
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+
+    private static String percentile(long[] histogram, double quantile) {
+        long total = 0;
+        for (long count : histogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return "-";
+        }
+        long target = (long) Math.ceil(total * quantile);
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= target) {
+                if (i == BUCKETS) {
+                    return ">" + (BUCKETS * BUCKET_MICROS / 1000) + "ms";
+                }
+                return String.format("%.2fms", (i + 1) * BUCKET_MICROS / 1000.0);
+            }
+        }
+        return "-";
+    }
+
+    private static byte[] handshake(String host, int port) {
+        return ("GET /?topics=" + TOPIC + " HTTP/1.1\r\n" +
+                "Host: " + host + ":" + port + "\r\n" +
+                "Upgrade: websocket\r\n" +
+                "Connection: Upgrade\r\n" +
+                "Sec-WebSocket-Key: dGhlIHNhbXBsZSBub25jZQ==\r\n" +
+                "Sec-WebSocket-Version: 13\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Liest viele Client-Verbindungen über einen Selector, dekodiert die (unmaskierten) Server-Frames
+     * und trägt die Latenz anhand des mitgesendeten Zeitstempels ins Histogramm ein.
+     */
+    private static class ClientReader extends Thread {
+        private final Selector selector;
+        private final ConcurrentLinkedQueue<SocketChannel> pending = new ConcurrentLinkedQueue<>();
+        private final long[] histogram = new long[BUCKETS + 1];
+        private long received;
+        private volatile boolean running = true;
+
+        ClientReader(int index) throws IOException {
+            super("LoadTest-Client-" + index);
+            setDaemon(true);
+            selector = Selector.open();
+        }
+
+        void connect(int port) throws IOException {
+            SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", port));
+            channel.write(ByteBuffer.wrap(handshake("localhost", port)));
+            channel.configureBlocking(false);
+            pending.add(channel);
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                try {
+                    selector.select(100);
+                    SocketChannel channel;
+                    while ((channel = pending.poll()) != null) {
+                        channel.register(selector, SelectionKey.OP_READ, new ClientState());
+                    }
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        read(key);
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+
+        private void read(SelectionKey key) throws IOException {
+            ClientState state = (ClientState) key.attachment();
+            SocketChannel channel = (SocketChannel) key.channel();
+            if (channel.read(state.buffer) == -1) {
+                key.cancel();
+                channel.close();
+                return;
+            }
+            long now = System.nanoTime();
+            state.buffer.flip();
+            if (!state.upgraded) {
+                int headerEnd = HandshakeRequest.findHeaderEnd(state.buffer);
+                if (headerEnd == -1) {
+                    state.buffer.compact();
+                    return;
+                }
+                state.buffer.position(headerEnd);
+                state.upgraded = true;
+            }
+            while (state.buffer.remaining() >= 2) {
+                int start = state.buffer.position();
+                int lengthByte = state.buffer.get(start + 1) & 0x7F;
+                int headerLength = lengthByte == 126 ? 4 : lengthByte == 127 ? 10 : 2;
+                if (state.buffer.remaining() < headerLength) {
+                    break;
+                }
+                long length = lengthByte == 126 ? state.buffer.getShort(start + 2) & 0xFFFF
+                        : lengthByte == 127 ? state.buffer.getLong(start + 2) : lengthByte;
+                if (state.buffer.remaining() < headerLength + length) {
+                    if (headerLength + length > state.buffer.capacity()) {
+                        ByteBuffer bigger = ByteBuffer.allocate((int) (headerLength + length) * 2);
+                        bigger.put(state.buffer);
+                        bigger.flip();
+                        state.buffer = bigger;
+                    }
+                    break;
+                }
+                record(state.buffer, start + headerLength, (int) length, now);
+                state.buffer.position(start + headerLength + (int) length);
+            }
+            state.buffer.compact();
+        }
+
+        /**
+         * Sucht "\"t\":" im Payload und berechnet daraus die Latenz, ohne JSON zu parsen.
+         */
+        private void record(ByteBuffer buffer, int offset, int length, long now) {
+            for (int i = offset; i + 4 < offset + length; i++) {
+                if (buffer.get(i) == '"' && buffer.get(i + 1) == 't' && buffer.get(i + 2) == '"' && buffer.get(i + 3) == ':') {
+                    long sentAt = 0;
+                    for (int j = i + 4; j < offset + length; j++) {
+                        byte b = buffer.get(j);
+                        if (b < '0' || b > '9') {
+                            break;
+                        }
+                        sentAt = sentAt * 10 + (b - '0');
+                    }
+                    long micros = (now - sentAt) / 1_000;
+                    histogram[(int) Math.min(BUCKETS, Math.max(0, micros / BUCKET_MICROS))]++;
+                    received++;
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class ClientState {
+        private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        private boolean upgraded;
+    }
+
+    /**
+     * Absichtlich langsame Clients: lesen reihum nur wenige Bytes und schlafen dazwischen.
+     */
+    private static class SlowReaders extends Thread {
+        private final List<Socket> sockets = new ArrayList<>();
+        private final AtomicLong bytesRead = new AtomicLong();
+        private volatile boolean running = true;
+
+        SlowReaders(int port, int count) throws IOException {
+            super("LoadTest-SlowReaders");
+            setDaemon(true);
+            for (int i = 0; i < count; i++) {
+                Socket socket = new Socket();
+                socket.setReceiveBufferSize(4 * 1024);
+                socket.connect(new InetSocketAddress("localhost", port));
+                OutputStream out = socket.getOutputStream();
+                out.write(handshake("localhost", port));
+                out.flush();
+                sockets.add(socket);
+            }
+        }
+
+        @Override
+        public void run() {
+            byte[] chunk = new byte[512];
+            while (running) {
+                for (Socket socket : sockets) {
+                    try {
+                        InputStream in = socket.getInputStream();
+                        if (in.available() > 0) {
+                            int n = in.read(chunk);
+                            if (n > 0) {
+                                bytesRead.addAndGet(n);
+                            }
+                        }
+                    } catch (IOException e) {
+                        // Vom Server getrennt
+                    }
+                }
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package net.lunapp.twitch;
+
+import net.lunapp.bus.Event;
+import net.lunapp.bus.EventHandler;
+import org.json.JSONObject;
+
+/**
+ * Konsument des Event-Busses, der Events an die passenden Topics des {@link SocketServer} verteilt.
+ */
+public class SocketServerSink implements EventHandler {
+
+    private final SocketServer socketServer;
+
+    public SocketServerSink(SocketServer socketServer) {
+        this.socketServer = socketServer;
+    }
+
+    @Override
+    public void onEvent(Event event, long sequence) {
+        switch (event.getType()) {
+            case MODEL_REPLY:
+                socketServer.broadcast(event.getText());
+                break;
+            case SORT_FRAME:
+                // Binäre Animations-Frames (siehe SortStream) nur verteilen, wenn jemand zuschaut
+                if (socketServer.hasSubscribers(SocketServer.TOPIC_SORT) && event.getPayload() instanceof byte[]) {
+                    socketServer.broadcastBinary((byte[]) event.getPayload(), SocketServer.TOPIC_SORT);
+                }
+                break;
+            case BOT_STATUS:
+                socketServer.broadcast(new JSONObject().put("status", event.getText()), SocketServer.TOPIC_STATUS);
+                break;
+            case METRICS:
+                if (event.getPayload() instanceof JSONObject) {
+                    socketServer.broadcast((JSONObject) event.getPayload(), SocketServer.TOPIC_METRICS);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+}
@@ -6,22 +6,63 @@ import com.github.twitch4j.TwitchClient;
 import com.github.twitch4j.TwitchClientBuilder;
 import com.github.twitch4j.chat.events.channel.ChannelMessageEvent;
 import net.lunapp.Main;
+import net.lunapp.bus.Event;
+import net.lunapp.bus.EventType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BiConsumer;
 
 public class TwitchBot {
 
     private static final Logger log = LoggerFactory.getLogger(TwitchBot.class);
-    private Properties properties = loadConfigProperties();
-    private TwitchClient twitchClient;
+    private final Properties properties;
+    private final TwitchClient twitchClient;
+    private final Map<String, TwitchChannel> channels;
+    // Bündelt Erwähnungen pro Channel zu einem einzigen Gemini-Aufruf
+    private final MentionBatcher batcher;
+    // Ziel für ausgehende Chatnachrichten (Channel, Text): der Twitch-Chat oder ein Stub in der Simulation
+    private final BiConsumer<String, String> chatOutput;
+    // Sendet die Antwortteile pro Channel mit Pause, ohne den Bus-Konsumenten aufzuhalten
+    private final ReplySender replySender;
+    private final ReplyStats replyStats = new ReplyStats();
 
     public TwitchBot() {
+        this(loadConfigProperties(), null);
+    }
+
+    /**
+     * @param properties Die Konfiguration.
+     * @param chatOutput Ziel für ausgehende Nachrichten; bei null verbindet sich der Bot mit Twitch.
+     */
+    TwitchBot(Properties properties, BiConsumer<String, String> chatOutput) {
+        this.properties = properties;
+        this.channels = TwitchChannel.loadAll(properties);
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Twitch-Scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        batcher = new MentionBatcher(scheduler, this::dispatch);
+
+        if (chatOutput != null) {
+            // Simulation: keine Verbindung zu Twitch
+            this.twitchClient = null;
+            this.chatOutput = chatOutput;
+            this.replySender = new ReplySender(scheduler, chatOutput, this::onReplySent);
+            return;
+        }
+
         String twitchAccessToken = properties.getProperty("twitchAccessToken");
         OAuth2Credential credential = new OAuth2Credential("twitch", twitchAccessToken);
         twitchClient = TwitchClientBuilder.builder()
@@ -29,14 +70,34 @@ public class TwitchBot {
                 .withEnableChat(true)
                 .withChatAccount(credential)
                 .build();
+        this.chatOutput = twitchClient.getChat()::sendMessage;
+        this.replySender = new ReplySender(scheduler, this.chatOutput, this::onReplySent);
 
-        // Tritt dem Twitch-Channel bei
-        twitchClient.getChat().joinChannel("frecklesmp4");
+        // Tritt allen konfigurierten Twitch-Channels bei
+        for (TwitchChannel channel : channels.values()) {
+            twitchClient.getChat().joinChannel(channel.getName());
+        }
 
         EventManager eventManager = twitchClient.getEventManager();
         eventManager.onEvent(ChannelMessageEvent.class, this::handleMessageEvent);
 
-        twitchClient.getChat().sendMessage("frecklesmp4", "Hello World!");
+        // Optional den Chat für spätere Simulationen mitschneiden
+        String recordFile = properties.getProperty("twitchRecordFile");
+        if (recordFile != null && !recordFile.isBlank()) {
+            try {
+                ChatRecorder recorder = new ChatRecorder(Paths.get(recordFile));
+                eventManager.onEvent(ChannelMessageEvent.class, recorder::record);
+                Runtime.getRuntime().addShutdownHook(new Thread(recorder::close));
+            } catch (IOException e) {
+                log.error("Chat-Mitschnitt konnte nicht gestartet werden", e);
+            }
+        }
+
+        for (TwitchChannel channel : channels.values()) {
+            if (channel.getGreeting() != null) {
+                chatOutput.accept(channel.getName(), channel.getGreeting());
+            }
+        }
     }
 
     /**
@@ -44,7 +105,7 @@ public class TwitchBot {
      *
      * @return Ein Properties-Objekt mit den Konfigurationseinstellungen.
      */
-    private Properties loadConfigProperties() {
+    private static Properties loadConfigProperties() {
         Properties properties = new Properties();
         try (FileInputStream fis = new FileInputStream("config.properties")) {
             properties.load(fis);
@@ -56,65 +117,190 @@ public class TwitchBot {
 
     /**
      * Behandelt ChannelMessageEvents aus dem Twitch-Chat.
-     * Erkennt Nachrichten, die "mitsuki" oder "koga" enthalten,
-     * und leitet sie an Gemini weiter.
-     *
-     * Hier wird nun die neue Methode handleTwitchMessage verwendet.
+     * Erkennt Nachrichten, die eines der Trigger-Wörter des Channels enthalten,
+     * und übergibt sie dem Batcher des Channels.
      *
      * @param event Das ChannelMessageEvent.
      */
-    private void handleMessageEvent(ChannelMessageEvent event) {
-        String messageLower = event.getMessage().toLowerCase();
-        if (messageLower.contains("mitsuki") || messageLower.contains("koga")) {
-            String roleGemini = properties.getProperty("roleGemini");
-            String prompt = "Message from " + event.getUser().getName() + ": " + event.getMessage();
-            log.info("Received Twitch message: " + prompt);
-
-            // Aufruf von Gemini, der auch den Memory-Control-Prozess triggert
-            Main.getGemini().handleTwitchMessage(
-                    prompt,
-                    roleGemini + " Versuche dich bitte kurz zu halten. Du bist oft im Twitch-Chat von frecklesmp4 (Luna).",
-                    response -> {
-                        log.info("Received response from Gemini: " + response);
-                        if (response == null || response.trim().isEmpty()) {
-                            log.warn("Gemini response is empty. Skipping message send.");
-                            return;
-                        }
-
-                        String channel = "frecklesmp4";
-                        int maxLength = 500;
-                        List<String> messages = new ArrayList<>();
-
-                        // Nachricht in max. 500-Zeichen lange Teile aufsplitten
-                        for (int i = 0; i < response.length(); i += maxLength) {
-                            messages.add(response.substring(i, Math.min(i + maxLength, response.length())));
-                        }
-
-                        // Sicherstellen, dass der Socket-Server vorhanden ist
-                        if (Main.getSocketServer() == null) {
-                            log.error("SocketServer ist NULL! Broadcast nicht möglich.");
-                            return;
-                        }
-
-                        // Sende jeden Nachrichten-Teil an Twitch und an den WebSocket
-                        new Thread(() -> {
-                            for (String msg : messages) {
-                                twitchClient.getChat().sendMessage(channel, msg);
-                                Main.getSocketServer().broadcast(msg);
-                                log.info("Sent message to Twitch & WebSocket: " + msg);
-                                try {
-                                    Thread.sleep(1000); // 1 Sekunde Pause zwischen Nachrichten
-                                } catch (InterruptedException e) {
-                                    Thread.currentThread().interrupt();
-                                }
-                            }
-                        }).start();
-                    }
-            );
+    void handleMessageEvent(ChannelMessageEvent event) {
+        String channelName = event.getChannel().getName().toLowerCase(Locale.ROOT);
+        TwitchChannel channel = channels.get(channelName);
+        boolean triggered = channel != null && channel.isTriggered(event.getMessage());
+
+        // Jede Chatnachricht geht auf den Bus, z. B. für Statistiken
+        List<String> emotes = parseEmotes(event.getMessage(), event.getMessageEvent().getTagValue("emotes").orElse(null));
+        Main.getEventBus().publish(EventType.CHAT_MESSAGE, channelName,
+                event.getUser().getName(), event.getMessage(), new ChatMessageInfo(triggered, emotes));
+
+        if (!triggered) {
+            return;
+        }
+        log.info("Received Twitch message in #" + channelName + " from " + event.getUser().getName()
+                + ": " + event.getMessage());
+        batcher.add(channel, event.getUser().getName(), event.getMessage());
+    }
+
+    /**
+     * Liest die Emote-Namen aus dem "emotes"-Tag, z. B. "25:0-4,12-16/1902:6-10".
+     * Die Positionen zählen Unicode-Codepoints der Nachricht.
+     *
+     * @param message Die Chatnachricht.
+     * @param tag     Der Wert des Tags oder null.
+     * @return Ein Eintrag pro Vorkommen eines Emotes.
+     */
+    static List<String> parseEmotes(String message, String tag) {
+        List<String> emotes = new ArrayList<>();
+        if (tag == null || tag.isEmpty()) {
+            return emotes;
+        }
+        for (String emote : tag.split("/")) {
+            int colon = emote.indexOf(':');
+            if (colon == -1) {
+                continue;
+            }
+            for (String range : emote.substring(colon + 1).split(",")) {
+                int dash = range.indexOf('-');
+                try {
+                    int from = Integer.parseInt(range.substring(0, dash));
+                    int to = Integer.parseInt(range.substring(dash + 1));
+                    int start = message.offsetByCodePoints(0, from);
+                    int end = message.offsetByCodePoints(start, to - from + 1);
+                    emotes.add(message.substring(start, end));
+                } catch (RuntimeException e) {
+                    // Ungültige Positionsangabe, Emote überspringen
+                }
+            }
+        }
+        return emotes;
+    }
+
+    /**
+     * Übergibt einen fertigen Stapel von Erwähnungen als einen Prompt an Gemini. Die Verarbeitung läuft
+     * im gemeinsamen, begrenzten Pool der Zulassungskontrolle mit der niedrigsten Priorität.
+     * Das Antwortlimit des Channels zählt pro Stapel, nicht pro Erwähnung.
+     *
+     * @param channel  Der Channel.
+     * @param mentions Die gesammelten Erwähnungen (mindestens eine).
+     */
+    private void dispatch(TwitchChannel channel, List<MentionBatcher.Mention> mentions) {
+        if (!channel.tryAcquireReply(System.currentTimeMillis())) {
+            log.info("Antwortlimit in #" + channel.getName() + " erreicht, " + mentions.size()
+                    + " Erwähnung(en) werden ignoriert");
+            replyStats.addDropped(mentions.size());
+            return;
+        }
+
+        String prompt;
+        String persona = channel.getPersona();
+        String userId = null;
+        if (mentions.size() == 1) {
+            MentionBatcher.Mention mention = mentions.get(0);
+            prompt = "Message from " + mention.getUser() + ": " + mention.getMessage();
+            userId = mention.getUser();
+        } else {
+            StringBuilder builder = new StringBuilder("Messages from " + mentions.size() + " viewers:");
+            for (MentionBatcher.Mention mention : mentions) {
+                builder.append("\n").append(mention.getUser()).append(": ").append(mention.getMessage());
+            }
+            prompt = builder.toString();
+            persona += " Antworte mit einer einzigen kurzen Nachricht, die alle diese Zuschauer anspricht.";
+        }
+        String roleGemini = properties.getProperty("roleGemini", "");
+        Main.getGemini().handleTwitchMessage(channel.getName(), userId, prompt, roleGemini + " " + persona,
+                response -> publishReply(channel, response, receivedTimes(mentions)),
+                response -> publishShedReply(channel, response, mentions.size()));
+    }
+
+    private static long[] receivedTimes(List<MentionBatcher.Mention> mentions) {
+        long[] times = new long[mentions.size()];
+        for (int i = 0; i < times.length; i++) {
+            times[i] = mentions.get(i).getReceivedAt();
+        }
+        return times;
+    }
+
+    /**
+     * Legt die Antwort von Gemini auf den Bus.
+     *
+     * @param channel      Der Channel, aus dem die Nachricht stammt.
+     * @param response     Die Antwort.
+     * @param mentionTimes Empfangszeitpunkte der beantworteten Erwähnungen; reisen mit dem ersten Teil
+     *                     der Antwort mit, damit beim Senden die Latenz gemessen werden kann.
+     */
+    private void publishReply(TwitchChannel channel, String response, long[] mentionTimes) {
+        log.info("Received response from Gemini: " + response);
+        if (response == null || response.trim().isEmpty()) {
+            log.warn("Gemini response is empty. Skipping message send.");
+            replyStats.addDropped(mentionTimes.length);
+            return;
+        }
+        publishParts(channel, response, mentionTimes);
+    }
+
+    /**
+     * Legt die vorgefertigte Antwort bei Überlast oder erschöpftem Kontingent auf den Bus. Die Erwähnungen
+     * zählen als abgewiesen, nicht als beantwortet, und gehen nicht in die Latenzmessung ein.
+     *
+     * @param channel  Der Channel, aus dem die Nachricht stammt.
+     * @param response Die vorgefertigte Antwort.
+     * @param mentions Anzahl der betroffenen Erwähnungen.
+     */
+    private void publishShedReply(TwitchChannel channel, String response, int mentions) {
+        log.info("Anfrage aus #" + channel.getName() + " abgewiesen: " + response);
+        replyStats.addShed(mentions);
+        publishParts(channel, response, null);
+    }
+
+    private void publishParts(TwitchChannel channel, String response, long[] mentionTimes) {
+        int maxLength = 500;
+
+        // Nachricht in max. 500-Zeichen lange Teile aufsplitten und auf den Bus legen;
+        // Twitch und WebSocket holen sie sich dort jeweils in ihrem eigenen Tempo ab.
+        for (int i = 0; i < response.length(); i += maxLength) {
+            String part = response.substring(i, Math.min(i + maxLength, response.length()));
+            Main.getEventBus().publish(EventType.MODEL_REPLY, channel.getName(), null, part,
+                    i == 0 ? mentionTimes : null);
+        }
+    }
+
+    /**
+     * Konsument des Event-Busses: gibt Modell-Antworten an den {@link ReplySender} weiter.
+     * Blockiert nie, damit der Cursor dieses Konsumenten den Ringpuffer nicht für alle Produzenten aufhält;
+     * die Pause zwischen den Nachrichten des Channels hält der Sender ein.
+     *
+     * @param event    Das Event (nur MODEL_REPLY).
+     * @param sequence Die Sequenznummer.
+     */
+    public void onReplyEvent(Event event, long sequence) {
+        long[] mentionTimes = event.getPayload() instanceof long[] ? (long[]) event.getPayload() : null;
+        TwitchChannel channel = channels.get(event.getChannel());
+        if (channel == null) {
+            return;
         }
+        replySender.submit(new ReplySender.Reply(channel.getName(), event.getText(), mentionTimes),
+                channel.getReplyPauseMillis());
     }
 
+    private void onReplySent(ReplySender.Reply reply) {
+        log.info("Sent message to Twitch: " + reply.getText());
+        if (reply.getMentionTimes() != null) {
+            long now = System.nanoTime();
+            for (long receivedAt : reply.getMentionTimes()) {
+                replyStats.record(now - receivedAt);
+            }
+        }
+    }
 
+    /**
+     * @return Latenzen von Erwähnung bis gesendeter Antwort und verworfene Erwähnungen.
+     */
+    public ReplyStats getReplyStats() {
+        return replyStats;
+    }
+
+    public Map<String, TwitchChannel> getChannels() {
+        return channels;
+    }
 
     public TwitchClient getTwitchClient() {
         return twitchClient;
@@ -0,0 +1,163 @@
+package net.lunapp.twitch;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Konfiguration eines Twitch-Channels, in dem der Bot mitliest: Trigger-Wörter, Persona
+ * und ein Limit für Antworten pro Minute.
+ *
+ * In der config.properties werden die Channels so angegeben:
+ * <pre>
+ * twitchChannels=frecklesmp4,anderer_channel
+ * twitch.frecklesmp4.triggers=mitsuki,koga
+ * twitch.frecklesmp4.persona=Du bist oft im Twitch-Chat von frecklesmp4 (Luna).
+ * twitch.frecklesmp4.maxRepliesPerMinute=6
+ * twitch.frecklesmp4.greeting=Hello World!
+ * twitch.frecklesmp4.batchMaxSize=10
+ * twitch.frecklesmp4.batchMaxWaitMillis=1500
+ * twitch.frecklesmp4.replyPauseMillis=1000
+ * </pre>
+ * Ohne replyPauseMillis gilt twitchReplyPauseMillis (Standard: 1 Sekunde) für alle Channels.
+ */
+public class TwitchChannel {
+
+    private static final String DEFAULT_CHANNEL = "frecklesmp4";
+    private static final String DEFAULT_TRIGGERS = "mitsuki,koga";
+    private static final long WINDOW_MILLIS = 60_000;
+
+    private final String name;
+    private final List<String> triggers;
+    private final String persona;
+    private final int maxRepliesPerMinute;
+    private final String greeting;
+    private final int batchMaxSize;
+    private final long batchMaxWaitMillis;
+    private final long replyPauseMillis;
+    // Zeitpunkte der Antworten innerhalb der letzten Minute
+    private final ArrayDeque<Long> recentReplies = new ArrayDeque<>();
+
+    TwitchChannel(String name, List<String> triggers, String persona, int maxRepliesPerMinute, String greeting,
+                  int batchMaxSize, long batchMaxWaitMillis, long replyPauseMillis) {
+        this.name = name;
+        this.triggers = triggers;
+        this.persona = persona;
+        this.maxRepliesPerMinute = maxRepliesPerMinute;
+        this.greeting = greeting;
+        this.batchMaxSize = batchMaxSize;
+        this.batchMaxWaitMillis = batchMaxWaitMillis;
+        this.replyPauseMillis = replyPauseMillis;
+    }
+
+    /**
+     * Lädt alle konfigurierten Channels. Ohne "twitchChannels" wird wie bisher nur frecklesmp4 betreten.
+     *
+     * @param properties Die geladene config.properties.
+     * @return Die Channels, nach (kleingeschriebenem) Namen.
+     */
+    static Map<String, TwitchChannel> loadAll(Properties properties) {
+        Map<String, TwitchChannel> channels = new LinkedHashMap<>();
+        String defaultReplyPause = properties.getProperty("twitchReplyPauseMillis", "1000");
+        for (String raw : properties.getProperty("twitchChannels", DEFAULT_CHANNEL).split(",")) {
+            String name = raw.trim().toLowerCase(Locale.ROOT);
+            if (name.isEmpty()) {
+                continue;
+            }
+            String prefix = "twitch." + name + ".";
+            List<String> triggers = new ArrayList<>();
+            for (String trigger : properties.getProperty(prefix + "triggers", DEFAULT_TRIGGERS).split(",")) {
+                if (!trigger.isBlank()) {
+                    triggers.add(trigger.trim().toLowerCase(Locale.ROOT));
+                }
+            }
+            String persona = properties.getProperty(prefix + "persona",
+                    "Versuche dich bitte kurz zu halten. Du bist oft im Twitch-Chat von " + name + ".");
+            int maxReplies = Integer.parseInt(properties.getProperty(prefix + "maxRepliesPerMinute", "6"));
+            String greeting = properties.getProperty(prefix + "greeting",
+                    name.equals(DEFAULT_CHANNEL) ? "Hello World!" : null);
+            int batchMaxSize = Integer.parseInt(properties.getProperty(prefix + "batchMaxSize", "10"));
+            long batchMaxWait = Long.parseLong(properties.getProperty(prefix + "batchMaxWaitMillis", "1500"));
+            long replyPause = Long.parseLong(properties.getProperty(prefix + "replyPauseMillis", defaultReplyPause));
+            channels.put(name, new TwitchChannel(name, Collections.unmodifiableList(triggers), persona, maxReplies,
+                    greeting, batchMaxSize, batchMaxWait, replyPause));
+        }
+        return channels;
+    }
+
+    /**
+     * Prüft, ob eine Chatnachricht eines der Trigger-Wörter enthält.
+     *
+     * @param message Die Chatnachricht.
+     * @return true, wenn der Bot darauf reagieren soll.
+     */
+    public boolean isTriggered(String message) {
+        String lower = message.toLowerCase(Locale.ROOT);
+        for (String trigger : triggers) {
+            if (lower.contains(trigger)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reserviert eine Antwort im Minutenfenster des Channels.
+     *
+     * @param now Aktuelle Zeit in Millisekunden.
+     * @return false, wenn das Limit für diese Minute bereits erreicht ist.
+     */
+    public synchronized boolean tryAcquireReply(long now) {
+        while (!recentReplies.isEmpty() && recentReplies.peekFirst() <= now - WINDOW_MILLIS) {
+            recentReplies.pollFirst();
+        }
+        if (recentReplies.size() >= maxRepliesPerMinute) {
+            return false;
+        }
+        recentReplies.addLast(now);
+        return true;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<String> getTriggers() {
+        return triggers;
+    }
+
+    public String getPersona() {
+        return persona;
+    }
+
+    public int getMaxRepliesPerMinute() {
+        return maxRepliesPerMinute;
+    }
+
+    public int getBatchMaxSize() {
+        return batchMaxSize;
+    }
+
+    public long getBatchMaxWaitMillis() {
+        return batchMaxWaitMillis;
+    }
+
+    /**
+     * @return Pause zwischen zwei Nachrichten des Bots in diesem Channel.
+     */
+    public long getReplyPauseMillis() {
+        return replyPauseMillis;
+    }
+
+    /**
+     * @return Die Begrüßung beim Betreten oder null, wenn keine gesendet werden soll.
+     */
+    public String getGreeting() {
+        return greeting;
+    }
+}
@@ -0,0 +1,98 @@
+package net.lunapp.twitch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Hilfsmethoden zum Kodieren von Server-zu-Client WebSocket-Frames (RFC 6455).
+ * Server-Frames sind nie maskiert.
+ */
+final class WebSocketFrames {
+
+    static final int OPCODE_CONTINUATION = 0x0;
+    static final int OPCODE_TEXT = 0x1;
+    static final int OPCODE_BINARY = 0x2;
+    static final int OPCODE_CLOSE = 0x8;
+    static final int OPCODE_PING = 0x9;
+    static final int OPCODE_PONG = 0xA;
+
+    private WebSocketFrames() {
+    }
+
+    /**
+     * Kodiert einen vollständigen (FIN = 1) Frame in einen direkten, schreibgeschützten Puffer.
+     * Der Puffer kann für beliebig viele Clients über {@link ByteBuffer#duplicate()} geteilt werden.
+     *
+     * @param opcode  Der Opcode des Frames.
+     * @param payload Die Nutzdaten.
+     * @return Der fertige Frame, bereit zum Schreiben.
+     */
+    static ByteBuffer encode(int opcode, byte[] payload) {
+        return encode(opcode, payload, 0, payload.length);
+    }
+
+    static ByteBuffer encode(int opcode, byte[] payload, int offset, int length) {
+        return encode(opcode, false, payload, offset, length);
+    }
+
+    /**
+     * Wie {@link #encode(int, byte[])}, setzt aber bei compressed das RSV1-Bit (permessage-deflate).
+     */
+    static ByteBuffer encode(int opcode, boolean compressed, byte[] payload, int offset, int length) {
+        ByteBuffer frame = ByteBuffer.allocateDirect(headerLength(length) + length);
+        // Erster Byte: FIN = 1, ggf. RSV1 und der Opcode
+        frame.put((byte) (0x80 | (compressed ? 0x40 : 0) | opcode));
+        putLength(frame, length);
+        frame.put(payload, offset, length);
+        frame.flip();
+        return frame.asReadOnlyBuffer();
+    }
+
+    /**
+     * Kodiert einen Close-Frame mit Statuscode und (gekürzter) Begründung.
+     *
+     * @param code   Der Statuscode, z. B. 1000 für normales Schließen.
+     * @param reason Die Begründung; Steuerframes dürfen höchstens 125 Bytes Payload haben.
+     * @return Der fertige Frame.
+     */
+    static ByteBuffer close(int code, String reason) {
+        byte[] reasonBytes = reason.getBytes(StandardCharsets.UTF_8);
+        int reasonLength = Math.min(reasonBytes.length, 123);
+        byte[] payload = new byte[2 + reasonLength];
+        payload[0] = (byte) (code >> 8);
+        payload[1] = (byte) code;
+        System.arraycopy(reasonBytes, 0, payload, 2, reasonLength);
+        return encode(OPCODE_CLOSE, payload);
+    }
+
+    static int headerLength(int payloadLength) {
+        if (payloadLength <= 125) {
+            return 2;
+        } else if (payloadLength <= 65535) {
+            return 4;
+        }
+        return 10;
+    }
+
+    /**
+     * @param frame Ein Frame von {@link #encode}, Position am Anfang des Frames.
+     * @return Die Länge des Frame-Kopfs; danach beginnen die Nutzdaten.
+     */
+    static int headerLengthOf(ByteBuffer frame) {
+        int length = frame.get(frame.position() + 1) & 0x7F;
+        return length <= 125 ? 2 : length == 126 ? 4 : 10;
+    }
+
+    private static void putLength(ByteBuffer frame, int length) {
+        // Bestimme die Länge des Payloads
+        if (length <= 125) {
+            frame.put((byte) length);
+        } else if (length <= 65535) {
+            frame.put((byte) 126);
+            frame.putShort((short) length);
+        } else {
+            frame.put((byte) 127);
+            frame.putLong(length);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package net.lunapp.watchlist;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Zuletzt vergebene Position einer Watchlist. Positionen steigen dadurch streng und werden nie
+ * wiederverwendet, auch nicht nach "clear" oder wenn der letzte Eintrag gelöscht wurde.
+ */
+@Entity
+@Table(name = "watchlist_counter")
+public class WatchlistCounter {
+
+    @Id
+    @Column(length = 64)
+    private String owner;
+
+    @Column(nullable = false)
+    private long lastPosition;
+
+    protected WatchlistCounter() {
+        // Für JPA
+    }
+
+    public WatchlistCounter(String owner, long lastPosition) {
+        this.owner = owner;
+        this.lastPosition = lastPosition;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    /**
+     * Reserviert count aufeinanderfolgende Positionen.
+     *
+     * @return Die erste reservierte Position.
+     */
+    long reserve(int count) {
+        long first = lastPosition + 1;
+        lastPosition += count;
+        return first;
+    }
+
+    void raiseTo(long position) {
+        lastPosition = Math.max(lastPosition, position);
+    }
+}
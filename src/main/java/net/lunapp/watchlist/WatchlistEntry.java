@@ -0,0 +1,84 @@
+package net.lunapp.watchlist;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+/**
+ * Ein Eintrag einer Watchlist. Die Reihenfolge ergibt sich aus position; die Positionen einer
+ * Watchlist sind eindeutig, aber nicht lückenlos, damit Löschen keine anderen Zeilen verändert.
+ */
+@Entity
+@Table(name = "watchlist_entry", indexes = {
+        @Index(name = "idx_watchlist_owner_position", columnList = "owner, position", unique = true)
+})
+public class WatchlistEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 64)
+    private String owner;
+
+    @Column(nullable = false)
+    private long position;
+
+    @Column(nullable = false, length = 500)
+    private String title;
+
+    @Column(length = 500)
+    private String source;
+
+    // Optimistische Sperre: gleichzeitige Änderungen derselben Zeile schlagen fehl, statt sich zu überschreiben
+    @Version
+    private long version;
+
+    protected WatchlistEntry() {
+        // Für JPA
+    }
+
+    public WatchlistEntry(String owner, long position, String title, String source) {
+        this.owner = owner;
+        this.position = position;
+        this.title = title;
+        this.source = source;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setSource(String source) {
+        this.source = source;
+    }
+}
@@ -0,0 +1,282 @@
+package net.lunapp.watchlist;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Suchindex über Titel und Quellen einer Watchlist für die Autovervollständigung.
+ *
+ * Zwei Stufen: Zuerst wird nach Wortanfängen gesucht (jedes Wort der Anfrage muss Anfang eines
+ * Wortes im Eintrag sein). Reicht das nicht, kommen unscharfe Treffer über gemeinsame Trigramme
+ * dazu, damit auch Tippfehler noch etwas finden. Der Index wird bei jeder Änderung der Watchlist
+ * nur um den betroffenen Eintrag ergänzt; gelöschte Einträge werden markiert und erst entfernt,
+ * wenn sie mehr als die Hälfte ausmachen.
+ */
+class WatchlistIndex {
+
+    // Mindestanteil der Trigramme der Anfrage, die ein unscharfer Treffer enthalten muss
+    private static final double MIN_TRIGRAM_SCORE = 0.3;
+    // Ab so vielen gelöschten Dokumenten wird der Index neu aufgebaut
+    private static final int MIN_COMPACT = 1024;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Dokumentnummern sind dicht und steigen in Einfügereihenfolge; gelöschte Einträge sind null
+    private final List<WatchlistSnapshot.Item> docs = new ArrayList<>();
+    private final Map<Long, Integer> docById = new HashMap<>();
+    private final NavigableMap<String, IntList> words = new TreeMap<>();
+    private final Map<String, IntList> trigrams = new HashMap<>();
+    private int deleted;
+
+    WatchlistIndex(List<WatchlistSnapshot.Item> initial) {
+        for (WatchlistSnapshot.Item item : initial) {
+            insert(item);
+        }
+    }
+
+    /**
+     * Nimmt den Eintrag auf, sofern seine ID noch nicht im Index ist.
+     */
+    void add(WatchlistSnapshot.Item item) {
+        lock.writeLock().lock();
+        try {
+            if (!docById.containsKey(item.getId())) {
+                insert(item);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            delete(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void replace(WatchlistSnapshot.Item item) {
+        lock.writeLock().lock();
+        try {
+            delete(item.getId());
+            insert(item);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void clear() {
+        lock.writeLock().lock();
+        try {
+            docs.clear();
+            docById.clear();
+            words.clear();
+            trigrams.clear();
+            deleted = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param query Der bisher eingetippte Text.
+     * @param limit Maximale Anzahl an Treffern.
+     * @return Die besten Treffer, Wortanfänge vor unscharfen Treffern.
+     */
+    List<WatchlistSnapshot.Item> search(String query, int limit) {
+        String normalized = normalize(query);
+        List<String> queryWords = splitWords(normalized);
+        if (queryWords.isEmpty()) {
+            return Collections.emptyList();
+        }
+        lock.readLock().lock();
+        try {
+            List<WatchlistSnapshot.Item> matches = new ArrayList<>(limit);
+            BitSet prefix = prefixMatches(queryWords);
+            // Wortanfänge in Reihenfolge der Watchlist
+            for (int doc = prefix.nextSetBit(0); doc >= 0 && matches.size() < limit; doc = prefix.nextSetBit(doc + 1)) {
+                matches.add(docs.get(doc));
+            }
+            if (matches.size() < limit) {
+                for (int doc : trigramMatches(normalized, limit - matches.size(), prefix)) {
+                    matches.add(docs.get(doc));
+                }
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private BitSet prefixMatches(List<String> queryWords) {
+        BitSet candidates = null;
+        for (String word : queryWords) {
+            BitSet matches = new BitSet(docs.size());
+            for (IntList postings : words.subMap(word, true, word + Character.MAX_VALUE, false).values()) {
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.values[i];
+                    if (docs.get(doc) != null) {
+                        matches.set(doc);
+                    }
+                }
+            }
+            if (candidates == null) {
+                candidates = matches;
+            } else {
+                candidates.and(matches);
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    private int[] trigramMatches(String normalized, int limit, BitSet exclude) {
+        Set<String> queryTrigrams = trigramsOf(normalized);
+        int[] shared = new int[docs.size()];
+        for (String trigram : queryTrigrams) {
+            IntList postings = trigrams.get(trigram);
+            if (postings != null) {
+                for (int i = 0; i < postings.size; i++) {
+                    shared[postings.values[i]]++;
+                }
+            }
+        }
+        int minShared = Math.max(1, (int) Math.ceil(queryTrigrams.size() * MIN_TRIGRAM_SCORE));
+        // Die besten limit Dokumente; bei gleicher Punktzahl gewinnt das frühere
+        int[] best = new int[limit];
+        int count = 0;
+        for (int doc = 0; doc < shared.length; doc++) {
+            if (shared[doc] < minShared || exclude.get(doc) || docs.get(doc) == null) {
+                continue;
+            }
+            if (count == limit && shared[best[count - 1]] >= shared[doc]) {
+                continue;
+            }
+            int i = count < limit ? count++ : count - 1;
+            while (i > 0 && shared[best[i - 1]] < shared[doc]) {
+                best[i] = best[i - 1];
+                i--;
+            }
+            best[i] = doc;
+        }
+        return Arrays.copyOf(best, count);
+    }
+
+    private void insert(WatchlistSnapshot.Item item) {
+        int doc = docs.size();
+        docs.add(item);
+        docById.put(item.getId(), doc);
+        String text = textOf(item);
+        for (String word : splitWords(text)) {
+            words.computeIfAbsent(word, w -> new IntList()).addUnique(doc);
+        }
+        for (String trigram : trigramsOf(text)) {
+            trigrams.computeIfAbsent(trigram, t -> new IntList()).addUnique(doc);
+        }
+    }
+
+    /**
+     * Markiert den Eintrag nur als gelöscht; die Postings werden erst beim Verdichten bereinigt.
+     */
+    private void delete(long id) {
+        Integer doc = docById.remove(id);
+        if (doc == null) {
+            return;
+        }
+        docs.set(doc, null);
+        deleted++;
+        if (deleted >= MIN_COMPACT && deleted * 2 > docs.size()) {
+            List<WatchlistSnapshot.Item> live = new ArrayList<>(docs.size() - deleted);
+            for (WatchlistSnapshot.Item item : docs) {
+                if (item != null) {
+                    live.add(item);
+                }
+            }
+            docs.clear();
+            docById.clear();
+            words.clear();
+            trigrams.clear();
+            deleted = 0;
+            for (WatchlistSnapshot.Item item : live) {
+                insert(item);
+            }
+        }
+    }
+
+    private static String textOf(WatchlistSnapshot.Item item) {
+        return normalize(item.getTitle() + " " + (item.getSource() != null ? item.getSource() : ""));
+    }
+
+    /**
+     * Kleinschreibung, ohne Akzente, Satzzeichen werden zu einem Leerzeichen zusammengefasst.
+     */
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        StringBuilder builder = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                builder.append(Character.toLowerCase(c));
+            } else if (builder.length() > 0 && builder.charAt(builder.length() - 1) != ' ') {
+                builder.append(' ');
+            }
+        }
+        int length = builder.length();
+        return length > 0 && builder.charAt(length - 1) == ' ' ? builder.substring(0, length - 1) : builder.toString();
+    }
+
+    private static List<String> splitWords(String normalized) {
+        List<String> result = new ArrayList<>();
+        for (String word : normalized.split(" ")) {
+            if (!word.isEmpty()) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> trigramsOf(String normalized) {
+        Set<String> result = new HashSet<>();
+        String padded = " " + normalized + " ";
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    /**
+     * Aufsteigende Liste von Dokumentnummern ohne Boxing.
+     */
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void addUnique(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package net.lunapp.watchlist;
+
+import net.dv8tion.jda.api.EmbedBuilder;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+import net.dv8tion.jda.api.interactions.components.ActionRow;
+import net.dv8tion.jda.api.interactions.components.buttons.Button;
+
+import java.awt.*;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Baut die Seiten der Watchlist (Embed und Blätter-Buttons) und hält sie zwischengespeichert.
+ *
+ * Ein Eintrag im Cache gilt für genau einen Stand (Watchlist, Version, Seite). Nach einer Änderung
+ * hat der Stand eine neue Version, die alte Seite passt nicht mehr und wird beim nächsten Zugriff
+ * ersetzt. Solange sich nichts ändert, kostet das Blättern also keine Arbeit.
+ */
+public class WatchlistRenderer {
+
+    public static final int PAGE_SIZE = 10;
+    private static final int MAX_CACHED_PAGES = 1024;
+    // Zeichen pro Eintrag, damit eine volle Seite samt Titel und Fußzeile unter der Grenze eines Embeds bleibt
+    private static final int ITEM_BUDGET = (MessageEmbed.EMBED_MAX_LENGTH_BOT - 200) / PAGE_SIZE;
+    private static final Color COLOR = new Color(133, 201, 0);
+
+    // Schlüssel: "<Watchlist>:<Seite>"; die Version steht in der Seite selbst
+    private final Map<String, Page> cache = new ConcurrentHashMap<>();
+
+    /**
+     * @param snapshot Der Stand der Watchlist.
+     * @param page     Gewünschte Seite (0-basiert); wird auf die vorhandenen Seiten begrenzt.
+     * @return Die fertige Seite.
+     */
+    public Page render(WatchlistSnapshot snapshot, int page) {
+        int totalPages = totalPages(snapshot);
+        int index = Math.max(0, Math.min(page, totalPages - 1));
+        String cacheKey = snapshot.getKey() + ":" + index;
+
+        Page cached = cache.get(cacheKey);
+        if (cached != null && cached.version == snapshot.getVersion()) {
+            return cached;
+        }
+        Page rendered = build(snapshot, index, totalPages);
+        if (cache.size() >= MAX_CACHED_PAGES) {
+            cache.clear();
+        }
+        cache.put(cacheKey, rendered);
+        return rendered;
+    }
+
+    private static Page build(WatchlistSnapshot snapshot, int page, int totalPages) {
+        EmbedBuilder embed = new EmbedBuilder();
+        embed.setTitle("Watchlist");
+        embed.setColor(COLOR);
+        embed.setDescription("Here is your current watchlist:");
+
+        List<WatchlistSnapshot.Item> items = snapshot.getItems();
+        if (items.isEmpty()) {
+            embed.addField("Your watchlist is empty!", "", false);
+        } else {
+            int end = Math.min((page + 1) * PAGE_SIZE, items.size());
+            for (int i = page * PAGE_SIZE; i < end; i++) {
+                // Titel und Quelle dürfen bis zu 500 Zeichen lang sein, Feldnamen nur 256
+                String name = clamp((i + 1) + ". " + items.get(i).getTitle(), MessageEmbed.TITLE_MAX_LENGTH);
+                embed.addField(name, clamp("Source: " + items.get(i).getSource(), ITEM_BUDGET - name.length()), false);
+            }
+        }
+
+        List<ActionRow> rows = Collections.emptyList();
+        if (totalPages > 1) {
+            embed.setFooter("Page " + (page + 1) + " of " + totalPages);
+            String prefix = "watchlist:" + snapshot.getKey() + ":";
+            rows = List.of(ActionRow.of(
+                    Button.primary(prefix + (page - 1), "Previous").withDisabled(page == 0),
+                    Button.primary(prefix + (page + 1), "Next").withDisabled(page == totalPages - 1)
+            ));
+        }
+        return new Page(snapshot.getVersion(), embed.build(), rows);
+    }
+
+    private static String clamp(String text, int maxLength) {
+        return text.length() > maxLength ? text.substring(0, maxLength - 1) + "…" : text;
+    }
+
+    private static int totalPages(WatchlistSnapshot snapshot) {
+        return Math.max(1, (snapshot.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+    }
+
+    /**
+     * Eine fertig gebaute Seite.
+     */
+    public static final class Page {
+        private final long version;
+        private final MessageEmbed embed;
+        private final List<ActionRow> components;
+
+        Page(long version, MessageEmbed embed, List<ActionRow> components) {
+            this.version = version;
+            this.embed = embed;
+            this.components = components;
+        }
+
+        public MessageEmbed getEmbed() {
+            return embed;
+        }
+
+        /**
+         * @return Die Blätter-Buttons; leer, wenn die Watchlist auf eine Seite passt.
+         */
+        public List<ActionRow> getComponents() {
+            return components;
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package net.lunapp.watchlist;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.EntityTransaction;
+import javax.persistence.LockModeType;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.Persistence;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Zugriff auf die Watchlist-Einträge in der eingebetteten H2-Datenbank.
+ *
+ * Jede Änderung schreibt genau eine Zeile; nur "clear" löscht alle Zeilen einer Watchlist mit einer
+ * einzigen Anweisung. Gelesen wird seitenweise per Keyset-Abfrage über den Index (owner, position).
+ *
+ * Positionen vergibt ein Zähler pro Watchlist ({@link WatchlistCounter}); sie steigen streng und
+ * werden nie wiederverwendet. Ein Eintrag, der nach einem "clear" dazukommt, liegt also immer hinter
+ * allen geleerten Positionen. Die Zeile des Zählers wird beim Anhängen bis zum Ende der Transaktion
+ * gesperrt, gleichzeitiges Anhängen an dieselbe Watchlist wartet also kurz in der Datenbank.
+ *
+ * Sonst gibt es keine Sperre im Repository: Ändern zwei Aufrufe gleichzeitig dieselbe Zeile, scheitert
+ * einer an der Zeilenversion und wird mit dem neuen Stand der Datenbank wiederholt. Verschiedene
+ * Watchlists berühren sich dabei nie.
+ */
+public class WatchlistRepository {
+
+    private static final String PERSISTENCE_UNIT = "your-persistence-unit";
+    private static final int MAX_ATTEMPTS = 5;
+
+    private final EntityManagerFactory entityManagerFactory;
+
+    public WatchlistRepository() {
+        this.entityManagerFactory = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT);
+        // hbm2ddl "update" erkennt bestehende Tabellen unter H2 2.x nicht (Typ "BASE TABLE") und
+        // ergänzt deshalb keine Spalten; ältere Datenbanken bekommen die Versionsspalte hier
+        write(em -> em.createNativeQuery(
+                        "alter table watchlist_entry add column if not exists version bigint default 0 not null")
+                .executeUpdate());
+        // Watchlists aus der Zeit vor dem Zähler bekommen ihn sofort, damit kein Löschen davor
+        // eine ihrer Positionen wieder freigibt
+        write(em -> em.createNativeQuery(
+                        "insert into watchlist_counter (owner, lastPosition) "
+                                + "select e.owner, max(e.position) from watchlist_entry e "
+                                + "where not exists (select 1 from watchlist_counter c where c.owner = e.owner) "
+                                + "group by e.owner")
+                .executeUpdate());
+    }
+
+    /**
+     * @return Anzahl der Einträge der Watchlist.
+     */
+    public long count(String owner) {
+        return read(em -> em.createQuery(
+                        "select count(e) from WatchlistEntry e where e.owner = :owner", Long.class)
+                .setParameter("owner", owner)
+                .getSingleResult());
+    }
+
+    /**
+     * Lädt bis zu limit Einträge nach der angegebenen Position (exklusiv), aufsteigend sortiert.
+     *
+     * @param afterPosition Position des letzten Eintrags der vorherigen Seite, oder Long.MIN_VALUE für den Anfang.
+     */
+    public List<WatchlistEntry> pageAfter(String owner, long afterPosition, int limit) {
+        return read(em -> em.createQuery(
+                        "select e from WatchlistEntry e where e.owner = :owner and e.position > :position "
+                                + "order by e.position asc", WatchlistEntry.class)
+                .setParameter("owner", owner)
+                .setParameter("position", afterPosition)
+                .setMaxResults(limit)
+                .getResultList());
+    }
+
+    /**
+     * Hängt einen Eintrag an das Ende der Watchlist an.
+     */
+    public WatchlistEntry add(String owner, String title, String source) {
+        return writeWithRetry(em -> {
+            WatchlistEntry entry = new WatchlistEntry(owner, counter(em, owner).reserve(1), title, source);
+            em.persist(entry);
+            return entry;
+        });
+    }
+
+    /**
+     * Hängt mehrere Einträge in einer einzigen Transaktion an.
+     *
+     * @param rows Je Eintrag {Titel, Quelle}.
+     * @return Die angelegten Einträge in derselben Reihenfolge.
+     */
+    public List<WatchlistEntry> addAll(String owner, List<String[]> rows) {
+        return writeWithRetry(em -> {
+            long position = counter(em, owner).reserve(rows.size());
+            List<WatchlistEntry> entries = new ArrayList<>(rows.size());
+            for (String[] row : rows) {
+                WatchlistEntry entry = new WatchlistEntry(owner, position++, row[0], row[1]);
+                em.persist(entry);
+                entries.add(entry);
+            }
+            return entries;
+        });
+    }
+
+    /**
+     * Ändert Titel und/oder Quelle eines Eintrags; null lässt den Wert unverändert.
+     *
+     * @return Der geänderte Eintrag oder null, wenn er nicht mehr existiert.
+     */
+    public WatchlistEntry update(long id, String title, String source) {
+        return writeWithRetry(em -> {
+            WatchlistEntry entry = em.find(WatchlistEntry.class, id);
+            if (entry != null) {
+                if (title != null) {
+                    entry.setTitle(title);
+                }
+                if (source != null) {
+                    entry.setSource(source);
+                }
+            }
+            return entry;
+        });
+    }
+
+    /**
+     * @return true, wenn der Eintrag gelöscht wurde.
+     */
+    public boolean delete(long id) {
+        return write(em -> em.createQuery("delete from WatchlistEntry e where e.id = :id")
+                .setParameter("id", id)
+                .executeUpdate() > 0);
+    }
+
+    /**
+     * Löscht alle Einträge einer Watchlist. Einträge, die währenddessen angehängt werden, liegen
+     * dahinter und bleiben erhalten. Der Zähler bleibt stehen, neue Einträge bekommen also höhere
+     * Positionen als alle gelöschten.
+     *
+     * @return Die höchste gelöschte Position oder Long.MIN_VALUE, wenn die Watchlist leer war.
+     */
+    public long clear(String owner) {
+        return write(em -> {
+            Long last = em.createQuery(
+                            "select max(e.position) from WatchlistEntry e where e.owner = :owner", Long.class)
+                    .setParameter("owner", owner)
+                    .getSingleResult();
+            if (last == null) {
+                return Long.MIN_VALUE;
+            }
+            em.createQuery("delete from WatchlistEntry e where e.owner = :owner and e.position <= :position")
+                    .setParameter("owner", owner)
+                    .setParameter("position", last)
+                    .executeUpdate();
+            return last;
+        });
+    }
+
+    /**
+     * Übergibt alle Einträge einer Watchlist an einen anderen Besitzer.
+     *
+     * @return Anzahl der verschobenen Einträge.
+     */
+    public int reassign(String fromOwner, String toOwner) {
+        return writeWithRetry(em -> {
+            int moved = em.createQuery("update WatchlistEntry e set e.owner = :to where e.owner = :from")
+                    .setParameter("from", fromOwner)
+                    .setParameter("to", toOwner)
+                    .executeUpdate();
+            WatchlistCounter counter = em.find(WatchlistCounter.class, toOwner);
+            if (moved > 0 && counter != null) {
+                counter.raiseTo(maxPosition(em, toOwner));
+            }
+            return moved;
+        });
+    }
+
+    /**
+     * @return Der gesperrte Zähler der Watchlist; fehlt er noch, wird er mit der höchsten vorhandenen Position angelegt.
+     */
+    private static WatchlistCounter counter(EntityManager em, String owner) {
+        WatchlistCounter counter = em.find(WatchlistCounter.class, owner, LockModeType.PESSIMISTIC_WRITE);
+        if (counter == null) {
+            // Legen zwei Aufrufe den Zähler gleichzeitig an, scheitert einer am Primärschlüssel
+            counter = new WatchlistCounter(owner, maxPosition(em, owner));
+            em.persist(counter);
+        }
+        return counter;
+    }
+
+    private static long maxPosition(EntityManager em, String owner) {
+        Long last = em.createQuery(
+                        "select max(e.position) from WatchlistEntry e where e.owner = :owner", Long.class)
+                .setParameter("owner", owner)
+                .getSingleResult();
+        return last == null ? 0 : last;
+    }
+
+    private <T> T read(Function<EntityManager, T> query) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        try {
+            return query.apply(em);
+        } finally {
+            em.close();
+        }
+    }
+
+    /**
+     * Wie {@link #write}, wiederholt die Transaktion aber, wenn ein gleichzeitiger Schreibzugriff
+     * dieselbe Zeile geändert oder denselben Zähler angelegt hat.
+     */
+    private <T> T writeWithRetry(Function<EntityManager, T> work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return write(work);
+            } catch (RuntimeException e) {
+                if (attempt == MAX_ATTEMPTS || !isConflict(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private static boolean isConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException || cause instanceof SQLIntegrityConstraintViolationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private <T> T write(Function<EntityManager, T> work) {
+        EntityManager em = entityManagerFactory.createEntityManager();
+        EntityTransaction transaction = em.getTransaction();
+        try {
+            transaction.begin();
+            T result = work.apply(em);
+            transaction.commit();
+            return result;
+        } catch (RuntimeException e) {
+            if (transaction.isActive()) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+}
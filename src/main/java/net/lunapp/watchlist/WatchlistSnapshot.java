@@ -0,0 +1,196 @@
+package net.lunapp.watchlist;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unveränderlicher Stand einer Watchlist. Jede Änderung erzeugt einen neuen Stand mit höherer
+ * Versionsnummer; wer einen Stand in der Hand hat, sieht also immer Titel und Quellen, die zusammenpassen.
+ *
+ * Die Einträge sind nach ihrer Position in der Datenbank sortiert. Die with-Methoden werden von
+ * {@link WatchlistStore} erst nach dem Schreiben in die Datenbank aufgerufen, und zwar in beliebiger
+ * Reihenfolge; sie sind deshalb über ID, Position und Zeilenversion idempotent und ändern nichts
+ * außer dem neuen Stand.
+ */
+public final class WatchlistSnapshot {
+
+    private final String key;
+    private final long version;
+    private final List<Item> items;
+    // Positionen bis hierhin wurden geleert; später eintreffende Einträge darunter gibt es nicht mehr
+    private final long clearedUpTo;
+
+    WatchlistSnapshot(String key, List<Item> items) {
+        this(key, 0, items, 0);
+    }
+
+    private WatchlistSnapshot(String key, long version, List<Item> items, long clearedUpTo) {
+        this.key = key;
+        this.version = version;
+        this.items = Collections.unmodifiableList(items);
+        this.clearedUpTo = clearedUpTo;
+    }
+
+    /**
+     * Fügt Einträge an ihrer Position ein; bereits enthaltene oder inzwischen geleerte werden übergangen.
+     */
+    WatchlistSnapshot withAddedAll(List<Item> added) {
+        List<Item> copy = new ArrayList<>(items.size() + added.size());
+        copy.addAll(items);
+        boolean changed = false;
+        for (Item item : added) {
+            if (item.position <= clearedUpTo) {
+                continue;
+            }
+            int at = insertionPoint(copy, item.position);
+            if (at < 0) {
+                continue;
+            }
+            copy.add(at, item);
+            changed = true;
+        }
+        return changed ? new WatchlistSnapshot(key, version + 1, copy, clearedUpTo) : this;
+    }
+
+    /**
+     * Ersetzt den Eintrag mit derselben ID, sofern der neue eine höhere Zeilenversion hat.
+     */
+    WatchlistSnapshot withReplaced(Item item) {
+        int number = numberOf(item.getId());
+        if (number < 0 || items.get(number - 1).rowVersion >= item.rowVersion) {
+            return this;
+        }
+        List<Item> copy = new ArrayList<>(items);
+        copy.set(number - 1, item);
+        return new WatchlistSnapshot(key, version + 1, copy, clearedUpTo);
+    }
+
+    WatchlistSnapshot withRemoved(long id) {
+        int number = numberOf(id);
+        if (number < 0) {
+            return this;
+        }
+        List<Item> copy = new ArrayList<>(items);
+        copy.remove(number - 1);
+        return new WatchlistSnapshot(key, version + 1, copy, clearedUpTo);
+    }
+
+    /**
+     * Entfernt alle Einträge bis einschließlich der angegebenen Position.
+     */
+    WatchlistSnapshot clearedUpTo(long position) {
+        List<Item> remaining = new ArrayList<>();
+        for (Item item : items) {
+            if (item.position > position) {
+                remaining.add(item);
+            }
+        }
+        return new WatchlistSnapshot(key, version + 1, remaining, Math.max(clearedUpTo, position));
+    }
+
+    /**
+     * @return Der Eintrag dieses Stands mit derselben ID wie item oder null, wenn er hier nicht vorkommt.
+     */
+    Item find(Item item) {
+        int at = Collections.binarySearch(items, item, (a, b) -> Long.compare(a.position, b.position));
+        return at >= 0 && items.get(at).id == item.id ? items.get(at) : null;
+    }
+
+    /**
+     * @return Einfügestelle für die Position oder -1, wenn die Position schon belegt ist.
+     */
+    private static int insertionPoint(List<Item> sorted, long position) {
+        if (sorted.isEmpty() || sorted.get(sorted.size() - 1).position < position) {
+            return sorted.size();
+        }
+        int low = 0;
+        int high = sorted.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long midPosition = sorted.get(mid).position;
+            if (midPosition < position) {
+                low = mid + 1;
+            } else if (midPosition > position) {
+                high = mid - 1;
+            } else {
+                return -1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return Schlüssel der Watchlist, z. B. "user-123" oder "guild-456".
+     */
+    public String getKey() {
+        return key;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Item> getItems() {
+        return items;
+    }
+
+    public int size() {
+        return items.size();
+    }
+
+    /**
+     * @param number Angezeigte Nummer (1-basiert).
+     * @return Der Eintrag oder null, wenn es die Nummer nicht gibt.
+     */
+    public Item getByNumber(int number) {
+        return number >= 1 && number <= items.size() ? items.get(number - 1) : null;
+    }
+
+    /**
+     * @return Angezeigte Nummer (1-basiert) des Eintrags mit dieser ID oder -1.
+     */
+    public int numberOf(long id) {
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i).getId() == id) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Ein Eintrag einer Watchlist.
+     */
+    public static final class Item {
+        private final long id;
+        private final long position;
+        private final long rowVersion;
+        private final String title;
+        private final String source;
+
+        Item(long id, long position, long rowVersion, String title, String source) {
+            this.id = id;
+            this.position = position;
+            this.rowVersion = rowVersion;
+            this.title = title;
+            this.source = source;
+        }
+
+        static Item of(WatchlistEntry entry) {
+            return new Item(entry.getId(), entry.getPosition(), entry.getVersion(), entry.getTitle(), entry.getSource());
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public String getSource() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package net.lunapp.watchlist;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * Hält die Watchlists aller Nutzer und Server als unveränderliche Stände im Speicher.
+ *
+ * Lesen ist ein einfacher Map-Zugriff ohne Sperre. Bei einer Änderung wird zuerst die Zeile in der
+ * Datenbank geschrieben, ohne dabei eine Sperre im Speicher zu halten; gleichzeitige Schreibzugriffe
+ * auf dieselbe Watchlist löst das {@link WatchlistRepository} optimistisch auf. Erst danach wird der
+ * neue Stand mit {@link Map#computeIfPresent} eingesetzt, was nur noch Arbeit im Speicher ist. Da die
+ * Änderungen dabei in anderer Reihenfolge ankommen können als in der Datenbank, ordnet
+ * {@link WatchlistSnapshot} sie über Position und Zeilenversion ein.
+ *
+ * Geblättert wird im Stand, nicht in der Datenbank: Seiten, Export und der Suchindex für die
+ * Autovervollständigung brauchen ohnehin die ganze Watchlist im Speicher. Die Datenbank wird nur beim
+ * ersten Zugriff gelesen, in Blöcken per Keyset-Abfrage.
+ *
+ * Der Suchindex gehört zu keinem Stand, sondern liegt neben der Map und wird beim Einsetzen eines
+ * neuen Stands nachgeführt. Er ist damit nur letztlich konsistent: Eine Suche kann kurz einen Eintrag
+ * übersehen, der gerade geändert wird. Treffer werden aber immer gegen den aktuellen Stand geprüft,
+ * es kommt also nie ein Eintrag zurück, den es dort nicht gibt.
+ */
+public class WatchlistStore {
+
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    private final WatchlistRepository repository;
+    private final Map<String, WatchlistSnapshot> snapshots = new ConcurrentHashMap<>();
+    // Wird nur zusammen mit dem Stand in der Map geändert, also unter deren Sperre für den Schlüssel
+    private final Map<String, WatchlistIndex> indexes = new ConcurrentHashMap<>();
+
+    public WatchlistStore(WatchlistRepository repository) {
+        this.repository = repository;
+    }
+
+    /**
+     * @param key Schlüssel der Watchlist, siehe {@link #userKey} und {@link #guildKey}.
+     * @return Der aktuelle Stand; beim ersten Zugriff aus der Datenbank geladen.
+     */
+    public WatchlistSnapshot get(String key) {
+        WatchlistSnapshot snapshot = snapshots.get(key);
+        if (snapshot != null) {
+            return snapshot;
+        }
+        // Außerhalb der Map laden; lädt ein anderer Thread gleichzeitig, gewinnt der erste Stand,
+        // und nur für ihn wird der Index aufgebaut
+        WatchlistSnapshot loaded = load(key);
+        return snapshots.computeIfAbsent(key, k -> {
+            indexes.put(k, new WatchlistIndex(loaded.getItems()));
+            return loaded;
+        });
+    }
+
+    /**
+     * Sucht Einträge über Wortanfänge und unscharf über Trigramme, siehe {@link WatchlistIndex}.
+     *
+     * @param query Suchtext.
+     * @param limit Maximale Anzahl an Treffern.
+     * @return Die Treffer; bei leerem Suchtext die ersten Einträge der Watchlist.
+     */
+    public List<WatchlistSnapshot.Item> search(String key, String query, int limit) {
+        WatchlistSnapshot snapshot = get(key);
+        if (query == null || query.isBlank()) {
+            return snapshot.getItems().subList(0, Math.min(limit, snapshot.size()));
+        }
+        List<WatchlistSnapshot.Item> matches = new ArrayList<>(limit);
+        for (WatchlistSnapshot.Item match : indexes.get(key).search(query, limit)) {
+            WatchlistSnapshot.Item current = snapshot.find(match);
+            if (current != null) {
+                matches.add(current);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Hängt einen Eintrag an.
+     *
+     * @return Der neue Stand.
+     */
+    public WatchlistSnapshot add(String key, String title, String source) {
+        get(key);
+        WatchlistSnapshot.Item item = WatchlistSnapshot.Item.of(repository.add(key, title, source));
+        return added(key, List.of(item));
+    }
+
+    /**
+     * Hängt mehrere Einträge mit einem Datenbankzugriff und einem neuen Stand an.
+     *
+     * @param rows Je Eintrag {Titel, Quelle}.
+     * @return Der neue Stand.
+     */
+    public WatchlistSnapshot addAll(String key, List<String[]> rows) {
+        get(key);
+        List<WatchlistSnapshot.Item> added = new ArrayList<>(rows.size());
+        for (WatchlistEntry entry : repository.addAll(key, rows)) {
+            added.add(WatchlistSnapshot.Item.of(entry));
+        }
+        return added(key, added);
+    }
+
+    private WatchlistSnapshot added(String key, List<WatchlistSnapshot.Item> added) {
+        return apply(key, (current, index) -> {
+            WatchlistSnapshot next = current.withAddedAll(added);
+            for (WatchlistSnapshot.Item item : added) {
+                if (next.find(item) != null) {
+                    index.add(item);
+                }
+            }
+            return next;
+        });
+    }
+
+    /**
+     * Entfernt den Eintrag mit der angezeigten Nummer.
+     *
+     * @return Der entfernte Eintrag oder null, wenn es die Nummer nicht gibt.
+     */
+    public WatchlistSnapshot.Item remove(String key, int number) {
+        return remove(key, get(key).getByNumber(number));
+    }
+
+    /**
+     * Entfernt den Eintrag mit der angegebenen ID (z. B. aus der Autovervollständigung).
+     *
+     * @return Der entfernte Eintrag oder null, wenn es ihn nicht mehr gibt.
+     */
+    public WatchlistSnapshot.Item removeById(String key, long id) {
+        WatchlistSnapshot snapshot = get(key);
+        return remove(key, snapshot.getByNumber(snapshot.numberOf(id)));
+    }
+
+    private WatchlistSnapshot.Item remove(String key, WatchlistSnapshot.Item item) {
+        // Hat ein gleichzeitiger Aufruf die Zeile schon gelöscht, setzt dieser auch den Stand
+        if (item == null || !repository.delete(item.getId())) {
+            return null;
+        }
+        apply(key, (current, index) -> {
+            index.remove(item.getId());
+            return current.withRemoved(item.getId());
+        });
+        return item;
+    }
+
+    /**
+     * Ändert Titel und/oder Quelle des Eintrags mit der angezeigten Nummer; null lässt den Wert unverändert.
+     *
+     * @return Der geänderte Eintrag oder null, wenn es die Nummer nicht gibt.
+     */
+    public WatchlistSnapshot.Item edit(String key, int number, String title, String source) {
+        return edit(key, get(key).getByNumber(number), title, source);
+    }
+
+    /**
+     * Wie {@link #edit(String, int, String, String)}, aber über die ID des Eintrags.
+     */
+    public WatchlistSnapshot.Item editById(String key, long id, String title, String source) {
+        WatchlistSnapshot snapshot = get(key);
+        return edit(key, snapshot.getByNumber(snapshot.numberOf(id)), title, source);
+    }
+
+    private WatchlistSnapshot.Item edit(String key, WatchlistSnapshot.Item item, String title, String source) {
+        if (item == null) {
+            return null;
+        }
+        WatchlistEntry entry = repository.update(item.getId(), title, source);
+        if (entry == null) {
+            // Zeile wurde gleichzeitig gelöscht
+            return null;
+        }
+        WatchlistSnapshot.Item edited = WatchlistSnapshot.Item.of(entry);
+        apply(key, (current, index) -> {
+            WatchlistSnapshot next = current.withReplaced(edited);
+            if (next != current) {
+                index.replace(edited);
+            }
+            return next;
+        });
+        return edited;
+    }
+
+    /**
+     * Leert die Watchlist.
+     */
+    public void clear(String key) {
+        get(key);
+        long clearedUpTo = repository.clear(key);
+        apply(key, (current, index) -> {
+            WatchlistSnapshot next = current.clearedUpTo(clearedUpTo);
+            for (WatchlistSnapshot.Item item : current.getItems()) {
+                if (next.find(item) == null) {
+                    index.remove(item.getId());
+                }
+            }
+            return next;
+        });
+    }
+
+    /**
+     * Setzt den nächsten Stand ein und führt den Index nach. Läuft unter der Sperre der Map, darf also
+     * nur im Speicher arbeiten.
+     */
+    private WatchlistSnapshot apply(String key, BiFunction<WatchlistSnapshot, WatchlistIndex, WatchlistSnapshot> change) {
+        return snapshots.computeIfPresent(key, (k, current) -> change.apply(current, indexes.get(k)));
+    }
+
+    private WatchlistSnapshot load(String key) {
+        List<WatchlistSnapshot.Item> items = new ArrayList<>();
+        long after = Long.MIN_VALUE;
+        List<WatchlistEntry> batch;
+        do {
+            batch = repository.pageAfter(key, after, LOAD_BATCH_SIZE);
+            for (WatchlistEntry entry : batch) {
+                items.add(WatchlistSnapshot.Item.of(entry));
+                after = entry.getPosition();
+            }
+        } while (batch.size() == LOAD_BATCH_SIZE);
+        return new WatchlistSnapshot(key, items);
+    }
+
+    public static String userKey(String userId) {
+        return "user-" + userId;
+    }
+
+    public static String guildKey(String guildId) {
+        return "guild-" + guildId;
+    }
+}
@@ -0,0 +1,274 @@
+package net.lunapp.watchlist;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.IntConsumer;
+
+/**
+ * Import und Export ganzer Watchlists als JSON oder CSV.
+ *
+ * Beide Richtungen arbeiten als Strom: Beim Import wird die Datei Eintrag für Eintrag gelesen und
+ * in Stapeln zu je {@link #BATCH_SIZE} Einträgen in einer Transaktion geschrieben, beim Export wird
+ * direkt aus dem Stand in den Writer geschrieben. Der Speicherbedarf hängt also nicht von der Länge
+ * der Datei ab.
+ *
+ * JSON: ein Array aus Objekten {"title": ..., "source": ...} oder aus einfachen Strings.
+ * CSV: Spalten title,source; eine Kopfzeile mit "title" wird übersprungen.
+ */
+public final class WatchlistTransfer {
+
+    public static final int BATCH_SIZE = 500;
+    private static final int MAX_LENGTH = 500;
+
+    public enum Format {
+        JSON,
+        CSV;
+
+        /**
+         * @return Das Format anhand der Dateiendung; alles außer .csv gilt als JSON.
+         */
+        public static Format fromFileName(String fileName) {
+            return fileName.toLowerCase(Locale.ROOT).endsWith(".csv") ? CSV : JSON;
+        }
+
+        public String getExtension() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Ergebnis eines Imports.
+     */
+    public static final class ImportResult {
+        private final int imported;
+        private final int skipped;
+
+        ImportResult(int imported, int skipped) {
+            this.imported = imported;
+            this.skipped = skipped;
+        }
+
+        public int getImported() {
+            return imported;
+        }
+
+        /**
+         * @return Anzahl der Zeilen ohne Titel.
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+    }
+
+    private WatchlistTransfer() {
+    }
+
+    /**
+     * Liest die Datei und hängt alle Einträge an die Watchlist an.
+     *
+     * @param progress Erhält nach jedem geschriebenen Stapel die Zahl der bisher importierten Einträge.
+     * @throws IOException Bei Lesefehlern oder ungültigem Format; bereits geschriebene Stapel bleiben erhalten.
+     */
+    public static ImportResult importInto(WatchlistStore store, String key, InputStream in, Format format,
+                                          IntConsumer progress) throws IOException {
+        Batcher batcher = new Batcher(store, key, progress);
+        try (Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            // Byte Order Mark (z. B. aus Excel) überspringen
+            reader.mark(1);
+            if (reader.read() != '\uFEFF') {
+                reader.reset();
+            }
+            if (format == Format.CSV) {
+                readCsv(reader, batcher);
+            } else {
+                readJson(reader, batcher);
+            }
+        }
+        batcher.flush();
+        return new ImportResult(batcher.imported, batcher.skipped);
+    }
+
+    private static void readJson(Reader reader, Batcher batcher) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        try {
+            json.beginArray();
+            while (json.hasNext()) {
+                if (json.peek() == JsonToken.STRING) {
+                    batcher.add(json.nextString(), null);
+                    continue;
+                }
+                String title = null;
+                String source = null;
+                json.beginObject();
+                while (json.hasNext()) {
+                    String name = json.nextName();
+                    if (json.peek() == JsonToken.NULL) {
+                        json.nextNull();
+                    } else if (name.equals("title") || name.equals("name")) {
+                        title = json.nextString();
+                    } else if (name.equals("source")) {
+                        source = json.nextString();
+                    } else {
+                        json.skipValue();
+                    }
+                }
+                json.endObject();
+                batcher.add(title, source);
+            }
+            json.endArray();
+        } catch (IllegalStateException e) {
+            // JsonReader meldet unerwartete Token als IllegalStateException
+            throw new IOException("Expected a JSON array of shows: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * CSV nach RFC 4180: Felder in Anführungszeichen dürfen Kommas, Zeilenumbrüche und "" enthalten.
+     */
+    private static void readCsv(Reader reader, Batcher batcher) throws IOException {
+        List<String> record = new ArrayList<>(2);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean first = true;
+        int c;
+        while ((c = reader.read()) != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    if (reader.read() == '"') {
+                        field.append('"');
+                    } else {
+                        reader.reset();
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n' || c == '\r') {
+                if (c == '\r') {
+                    reader.mark(1);
+                    if (reader.read() != '\n') {
+                        reader.reset();
+                    }
+                }
+                record.add(field.toString());
+                field.setLength(0);
+                addCsvRecord(record, first, batcher);
+                first = false;
+                record.clear();
+            } else {
+                field.append((char) c);
+            }
+        }
+        if (field.length() > 0 || !record.isEmpty()) {
+            record.add(field.toString());
+            addCsvRecord(record, first, batcher);
+        }
+    }
+
+    private static void addCsvRecord(List<String> record, boolean first, Batcher batcher) {
+        if (record.size() == 1 && record.get(0).isBlank()) {
+            return;
+        }
+        if (first && record.get(0).trim().equalsIgnoreCase("title")) {
+            return;
+        }
+        batcher.add(record.get(0), record.size() > 1 ? record.get(1) : null);
+    }
+
+    /**
+     * Schreibt den Stand der Watchlist in den Writer.
+     */
+    public static void export(WatchlistSnapshot snapshot, Format format, Writer out) throws IOException {
+        if (format == Format.CSV) {
+            out.write("title,source\n");
+            for (WatchlistSnapshot.Item item : snapshot.getItems()) {
+                out.write(csvField(item.getTitle()));
+                out.write(',');
+                out.write(csvField(item.getSource() != null ? item.getSource() : ""));
+                out.write('\n');
+            }
+            out.flush();
+            return;
+        }
+        JsonWriter json = new JsonWriter(out);
+        json.setIndent("  ");
+        json.beginArray();
+        for (WatchlistSnapshot.Item item : snapshot.getItems()) {
+            json.beginObject();
+            json.name("title").value(item.getTitle());
+            json.name("source").value(item.getSource());
+            json.endObject();
+        }
+        json.endArray();
+        json.flush();
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Sammelt gelesene Einträge und schreibt sie stapelweise.
+     */
+    private static final class Batcher {
+        private final WatchlistStore store;
+        private final String key;
+        private final IntConsumer progress;
+        private final List<String[]> pending = new ArrayList<>(BATCH_SIZE);
+        private int imported;
+        private int skipped;
+
+        Batcher(WatchlistStore store, String key, IntConsumer progress) {
+            this.store = store;
+            this.key = key;
+            this.progress = progress;
+        }
+
+        void add(String title, String source) {
+            if (title == null || title.isBlank()) {
+                skipped++;
+                return;
+            }
+            String trimmedSource = source == null || source.isBlank() ? "none" : truncate(source.trim());
+            pending.add(new String[]{truncate(title.trim()), trimmedSource});
+            if (pending.size() >= BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (pending.isEmpty()) {
+                return;
+            }
+            store.addAll(key, pending);
+            imported += pending.size();
+            pending.clear();
+            progress.accept(imported);
+        }
+
+        private static String truncate(String value) {
+            return value.length() > MAX_LENGTH ? value.substring(0, MAX_LENGTH) : value;
+        }
+    }
+}